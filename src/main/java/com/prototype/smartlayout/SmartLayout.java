@@ -1,11 +1,20 @@
 package com.prototype.smartlayout;
 
 import com.prototype.smartlayout.listeners.ComponentResizeEndListener;
+import com.prototype.smartlayout.model.BreakpointTable;
+import com.prototype.smartlayout.model.EnumerationBudget;
 import com.prototype.smartlayout.model.LayoutContainer;
 import com.prototype.smartlayout.model.Layoutable;
+import com.prototype.smartlayout.model.RangeSnapshot;
 import com.prototype.smartlayout.model.WidthHeightRange;
+import com.prototype.smartlayout.model.enums.DistributionStrategyEnum;
+import com.prototype.smartlayout.utils.AestheticLayoutSelector;
+import com.prototype.smartlayout.utils.AestheticLayoutSelector.Selection;
 import com.prototype.smartlayout.utils.AestheticMeasureUtil;
+import com.prototype.smartlayout.utils.AestheticScoreMatrix;
+import com.prototype.smartlayout.utils.ComponentBoundsApplier;
 import com.prototype.smartlayout.utils.TestCaseUtils;
+import com.prototype.smartlayout.utils.WeightProfile;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -14,14 +23,13 @@ import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Optional;
 import java.util.Vector;
-import javax.swing.BorderFactory;
+import java.util.stream.Collectors;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
@@ -40,10 +48,22 @@ public class SmartLayout extends JFrame {
 	private JTextField txtnum1;
 	private JTextField txtnum2;
 	private JComboBox comboBox;
+	// The weight profiles to choose from, in the order of weightProfileBox, see tuneWeights
+	private final List<WeightProfile> weightProfiles = new ArrayList<>();
+	private JComboBox<String> weightProfileBox;
 	private List<Color> colorList = new ArrayList<>();
 	private Vector<WidthHeightRange> feasibleLayouts = new Vector<>();
 	private Layoutable root;
 	private Vector<WidthHeightRange> finalLayoutCases;
+	// Precompiled layouts per window size, loaded from the file in the smartlayout.breakpoints property
+	private BreakpointTable breakpointTable = null;
+	private final ComponentBoundsApplier boundsApplier = new ComponentBoundsApplier();
+	private final AestheticLayoutSelector aestheticLayoutSelector = new AestheticLayoutSelector();
+	// The metrics of the feasible layouts at the size and with the weights they were computed for, see tuneWeights
+	private AestheticScoreMatrix scoreMatrix = null;
+	private Vector<WidthHeightRange> scoreMatrixLayouts = null;
+	private int scoreMatrixWidth;
+	private int scoreMatrixHeight;
 
 	private SmartLayout () {
 		super();
@@ -129,6 +149,18 @@ public class SmartLayout extends JFrame {
 		});
 		topPanel.add(comboBox);
 
+		JLabel lblWeights = new JLabel("Weights: ");
+		topPanel.add(lblWeights);
+		weightProfileBox = new JComboBox<>();
+		addWeightProfile("Default", WeightProfile.DEFAULT);
+		addWeightProfile("All metrics", WeightProfile.ALL);
+		weightProfileBox.addItemListener(event -> {
+			if (event.getStateChange() == ItemEvent.SELECTED) {
+				tuneWeights(weightProfiles.get(weightProfileBox.getSelectedIndex()));
+			}
+		});
+		topPanel.add(weightProfileBox);
+
 		JLabel lbl1 = new JLabel("X: ");
 		topPanel.add(lbl1);
 		txtnum1 = new JTextField();
@@ -171,15 +203,9 @@ public class SmartLayout extends JFrame {
 		app.setSize(800, 400);
 	}
 
-	private static void resizeComponents () {
-		TestCaseUtils.jComponentMap.forEach((lComponent, jComponent) -> {
-			if (lComponent != null) {
-				jComponent.setBounds(lComponent.getAssignedX(), lComponent.getAssignedY(),
-						lComponent.getAssignedWidth(), lComponent.getAssignedHeight());
-				jComponent.setBorder(BorderFactory.createLineBorder(lComponent.isFeasible() ? Color.GREEN : Color.RED));
-				jComponent.setToolTipText(lComponent.getLabel());
-			}
-		});
+	private void resizeComponents () {
+		// Only the components whose bounds or feasibility changed since the last call are updated.
+		boundsApplier.apply(TestCaseUtils.jComponentMap);
 	}
 
 	/**
@@ -190,7 +216,7 @@ public class SmartLayout extends JFrame {
 	}
 
 	private void layoutAfterComboBoxChanged (int selectedIndex) {
-		for (WidthHeightRange finalLayoutCase : finalLayoutCases) {
+		for (WidthHeightRange finalLayoutCase : feasibleLayouts) {
 			if (finalLayoutCase.toString().equals(comboBox.getItemAt(selectedIndex).toString())) {
 				long startTime = System.nanoTime();
 				root.layout(0, 0, Math.max(root.getAssignedWidth(), 0), Math.max(root.getAssignedHeight(), 0), finalLayoutCase);
@@ -212,26 +238,136 @@ public class SmartLayout extends JFrame {
 		TestCaseUtils.jComponentMap.forEach((key, ignored) -> colorList.add(new Color(100 + (int) (Math.random() * 100), 100 + (int) (Math.random() * 100), 100 + (int) (Math.random() * 100))));
 
 		((LayoutContainer) root).clearMemoization();
+		String distribution = System.getProperty("smartlayout.distribution");
+		if (distribution != null) {
+			LayoutContainer.setDefaultDistributionStrategy(DistributionStrategyEnum.valueOf(distribution));
+		}
+		String weights = System.getProperty("smartlayout.weights");
+		if (weights != null) {
+			addWeightProfile("Custom", WeightProfile.parse(weights));
+			// Selecting it sets the profile, see tuneWeights.
+			weightProfileBox.setSelectedIndex(weightProfiles.size() - 1);
+			log.debug("Aesthetic weights: " + AestheticMeasureUtil.getWeightProfile());
+		}
+		EnumerationBudget.setMaxRanges(Long.getLong("smartlayout.maxRanges", EnumerationBudget.getMaxRanges()));
+		log.debug("Estimated enumeration: " + EnumerationBudget.estimate(root));
 		long startTime = System.nanoTime();
-		finalLayoutCases = root.getRanges();
+		boolean snapshotLoaded = loadRangeSnapshot(System.getProperty("smartlayout.snapshot"));
+		finalLayoutCases = ((LayoutContainer) root).getRangesParallel();
 		long elapsedTime = System.nanoTime() - startTime;
-		log.debug("getRanges Execution time in nanosecond: " + elapsedTime);
+		log.debug("getRanges Execution time in nanosecond: " + elapsedTime + (snapshotLoaded ? " (from snapshot)" : ""));
 		log.debug("getRanges Execution time in microsecond: " + elapsedTime / 1000);
+		if (!snapshotLoaded) {
+			writeRangeSnapshot(System.getProperty("smartlayout.snapshot"));
+		}
 
 		startTime = System.nanoTime();
 		finalLayoutCases = root.getRanges();
 		elapsedTime = System.nanoTime() - startTime;
 		log.debug("getRanges memoization time in nanosecond: " + elapsedTime);
 		log.debug("getRanges memoization time in microsecond: " + elapsedTime / 1000);
+		// Checked against the ranges and the weights, so only after both are known.
+		loadBreakpointTable(System.getProperty("smartlayout.breakpoints"));
 		//log.debug(finalLayoutCases);
+		if (finalLayoutCases.isEmpty()) {
+			log.error("The tree has no feasible layout, nothing to lay out.");
+			return;
+		}
 		root.layout(0, 0, 800, 400, finalLayoutCases.get(0));
 	}
 
+	private void loadBreakpointTable (String path) {
+		if (path == null) {
+			return;
+		}
+		try {
+			BreakpointTable table = BreakpointTable.read(Paths.get(path));
+			if (table.matches((LayoutContainer) root, AestheticMeasureUtil.getWeightProfile())) {
+				breakpointTable = table;
+			} else {
+				log.error("Breakpoint table " + path + " was compiled for another tree or other weights, ignoring it.");
+			}
+		} catch (IOException e) {
+			log.error("Could not read breakpoint table " + path, e);
+		}
+	}
+
+	/**
+	 * Loads the ranges of the tree from the snapshot file in the smartlayout.snapshot property, so
+	 * they do not have to be enumerated. A tree that may be over the enumeration budget may have
+	 * been switched to the heuristic mode when the snapshot was written, which changes its key, so
+	 * that mode is tried as well.
+	 *
+	 * @return true if the snapshot was loaded
+	 */
+	private boolean loadRangeSnapshot (String path) {
+		if (path == null) {
+			return false;
+		}
+		LayoutContainer container = (LayoutContainer) root;
+		try {
+			if (RangeSnapshot.load(container, Paths.get(path))) {
+				return true;
+			}
+			if (container.getRangeLimit() > 0 || EnumerationBudget.allows(container)) {
+				return false;
+			}
+			boolean rangePruning = container.isRangePruning();
+			container.useHeuristicMode();
+			boolean loaded = false;
+			try {
+				loaded = RangeSnapshot.load(container, Paths.get(path));
+			} finally {
+				if (!loaded) {
+					container.setRangePruning(rangePruning);
+					container.setRangeLimit(0);
+				}
+			}
+			return loaded;
+		} catch (IOException e) {
+			log.error("Could not read range snapshot " + path, e);
+			return false;
+		}
+	}
+
+	private void writeRangeSnapshot (String path) {
+		if (path == null) {
+			return;
+		}
+		try {
+			RangeSnapshot.write((LayoutContainer) root, Paths.get(path));
+		} catch (IOException e) {
+			log.error("Could not write range snapshot " + path, e);
+		}
+	}
+
 	public void frameResized () {
 		if (root == null) {
 			return;
 		}
 		setResizeOnRoot();
+		// The table is only valid for the weights it was compiled with, which tuneWeights may have changed.
+		if (breakpointTable != null && breakpointTable.isFeasibleOnly() == showOnlyFeasibleLayouts.isSelected()
+				&& breakpointTable.getWeightProfile().equals(AestheticMeasureUtil.getWeightProfile())) {
+			// Use the precompiled layout if there is one for this size, otherwise select it as usual. The
+			// layout was chosen for a grid point near this size, so it is only used if it fits this size.
+			int index = breakpointTable.lookup(root.getAssignedWidth(), root.getAssignedHeight());
+			if (index >= 0 && isLayoutFeasible(root.getAssignedWidth(), root.getAssignedHeight(), root.getRanges().get(index))) {
+				WidthHeightRange layout = root.getRanges().get(index);
+				// The ranges of the root are memoized now, so the candidates are looked up in its index and
+				// contain the layout itself. Filling the combo box lays out its first item, so it goes first.
+				getFinalLayoutCases();
+				long startTime = System.nanoTime();
+				root.layout(0, 0, Math.max(root.getAssignedWidth(), 0), Math.max(root.getAssignedHeight(), 0), layout);
+				log.debug("\nBreakpoint table layout Execution time in nanosecond: " + (System.nanoTime() - startTime) + "\nSelected index : " + index);
+				selectLayout(feasibleLayouts.indexOf(layout));
+				panel.setSize(root.getAssignedWidth(), root.getAssignedHeight());
+				txtnum1.setText(root.getAssignedWidth() + "");
+				txtnum2.setText(root.getAssignedHeight() + "");
+				resizeComponents();
+				return;
+			}
+		}
 		getFinalLayoutCases();
 		long startTime = System.nanoTime();
 		root.layout(0, 0, Math.max(root.getAssignedWidth(), 0), Math.max(root.getAssignedHeight(), 0), getAestheticLayout(feasibleLayouts));
@@ -249,16 +385,26 @@ public class SmartLayout extends JFrame {
 	 * we can choose and see how that layout looks like in that resolution.
 	 */
 	private void getFinalLayoutCases () {
-		((LayoutContainer) root).clearMemoization();
-		finalLayoutCases = root.getRanges();
+		// The tree does not change while resizing, so the memoized ranges are still valid here.
 		comboBox.removeAllItems();
-		feasibleLayouts = new Vector<>();
-		for (WidthHeightRange finalLayoutCase : finalLayoutCases) {
+		if (showOnlyFeasibleLayouts.isSelected()) {
 			// If the checkbox is selected, then add if and only if layout's minimum requirements are satisfied.
-			if (!showOnlyFeasibleLayouts.isSelected() || isLayoutFeasible(root.getAssignedWidth(), root.getAssignedHeight(), finalLayoutCase)) {
-				comboBox.addItem(finalLayoutCase);
-				feasibleLayouts.add(finalLayoutCase);
+			LayoutContainer container = (LayoutContainer) root;
+			if (container.isDirty()) {
+				// Layouts that cannot fit into the window are not even enumerated.
+				feasibleLayouts = root.getRanges(root.getAssignedWidth(), root.getAssignedHeight()).stream()
+						.filter(finalLayoutCase -> isLayoutFeasible(root.getAssignedWidth(), root.getAssignedHeight(), finalLayoutCase))
+						.collect(Collectors.toCollection(Vector::new));
+			} else {
+				// All layouts are known, so only the feasible ones are looked up in the index.
+				feasibleLayouts = container.getRangeIndex().findFeasibleRanges(root.getAssignedWidth(), root.getAssignedHeight());
 			}
+		} else {
+			finalLayoutCases = root.getRanges();
+			feasibleLayouts = new Vector<>(finalLayoutCases);
+		}
+		for (WidthHeightRange feasibleLayout : feasibleLayouts) {
+			comboBox.addItem(feasibleLayout);
 		}
 	}
 
@@ -267,21 +413,65 @@ public class SmartLayout extends JFrame {
 			return null;
 		}
 		long startTime = System.nanoTime();
-		Map<Integer, Double> aestheticMeasurementMap = new HashMap<>();
-		for (int i = 0; i < layouts.size(); i++) {
-			WidthHeightRange layout = layouts.get(i);
-			root.layout(0, 0, Math.max(root.getAssignedWidth(), 0), Math.max(root.getAssignedHeight(), 0), layout);
-			aestheticMeasurementMap.put(i, AestheticMeasureUtil.measureAesthetics(root, false));
-		}
-		Optional<Entry<Integer, Double>> maxEntry = aestheticMeasurementMap.entrySet().stream().max(Entry.comparingByValue());
+		// The candidates are scored in parallel without touching the tree, only the best one is laid out.
+		Selection selection = aestheticLayoutSelector.select((LayoutContainer) root, Math.max(root.getAssignedWidth(), 0), Math.max(root.getAssignedHeight(), 0), layouts);
 		long elapsedTime = System.nanoTime() - startTime;
 		// "\nAesthetic Layout Execution time in nanosecond: " + elapsedTime +
 		log.debug("\nAesthetic Execution time in millisecond: " + elapsedTime / 1000000d + "\nTotal tree size : " + feasibleLayouts.size());
-		log.info("Selected index : " + maxEntry.get().getKey() + " Selected aesthetic value : " + maxEntry.get().getValue());
+		log.info("Selected index : " + selection.getIndex() + " Selected aesthetic value : " + selection.getScore());
 
-		root.layout(0, 0, Math.max(root.getAssignedWidth(), 0), Math.max(root.getAssignedHeight(), 0), maxEntry.isPresent() ? layouts.get(maxEntry.get().getKey()) : layouts.get(0));
+		root.layout(0, 0, Math.max(root.getAssignedWidth(), 0), Math.max(root.getAssignedHeight(), 0), layouts.get(selection.getIndex()));
 		AestheticMeasureUtil.measureAesthetics(root, true);
-		return maxEntry.isPresent() ? layouts.get(maxEntry.get().getKey()) : layouts.get(0);
+		return layouts.get(selection.getIndex());
+	}
+
+	private void addWeightProfile (String name, WeightProfile weightProfile) {
+		weightProfiles.add(weightProfile);
+		weightProfileBox.addItem(name);
+	}
+
+	/**
+	 * Sets the weights of the aesthetic metrics, chosen in weightProfileBox, and lays out the best
+	 * feasible layout for them. A different profile drops the score matrix, and the breakpoint table
+	 * is not used while its weights differ, see frameResized. The metrics are kept for the current
+	 * size and profile, so the layouts are not laid out again for every ranking. The layout is
+	 * selected in the combo box as well.
+	 */
+	public void tuneWeights (WeightProfile weightProfile) {
+		if (!weightProfile.equals(AestheticMeasureUtil.getWeightProfile())) {
+			AestheticMeasureUtil.setWeightProfile(weightProfile);
+			scoreMatrix = null;
+			if (breakpointTable != null && !breakpointTable.getWeightProfile().equals(weightProfile)) {
+				log.debug("Breakpoint table was compiled for other weights, selecting the layouts as usual.");
+			}
+		}
+		if (root == null || feasibleLayouts.isEmpty()) {
+			return;
+		}
+		int w = Math.max(root.getAssignedWidth(), 0);
+		int h = Math.max(root.getAssignedHeight(), 0);
+		long startTime = System.nanoTime();
+		if (scoreMatrix == null || scoreMatrixLayouts != feasibleLayouts || scoreMatrixWidth != w || scoreMatrixHeight != h) {
+			scoreMatrix = aestheticLayoutSelector.scoreMatrix((LayoutContainer) root, w, h, feasibleLayouts);
+			scoreMatrixLayouts = feasibleLayouts;
+			scoreMatrixWidth = w;
+			scoreMatrixHeight = h;
+		}
+		int index = scoreMatrix.best(weightProfile);
+		log.debug("\nWeight tuning Execution time in millisecond: " + (System.nanoTime() - startTime) / 1000000d + "\nSelected index : " + index + " Weights : " + weightProfile);
+		root.layout(0, 0, w, h, feasibleLayouts.get(index));
+		resizeComponents();
+		selectLayout(index);
+	}
+
+	/**
+	 * Selects the layout at index of feasibleLayouts in the combo box, which lists them in the same
+	 * order. The item listener lays out the same layout again, which changes nothing.
+	 */
+	private void selectLayout (int index) {
+		if (index >= 0 && index < comboBox.getItemCount() && comboBox.getSelectedIndex() != index) {
+			comboBox.setSelectedIndex(index);
+		}
 	}
 
 	/**
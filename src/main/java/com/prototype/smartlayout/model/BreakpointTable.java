@@ -0,0 +1,262 @@
+package com.prototype.smartlayout.model;
+
+import com.prototype.smartlayout.utils.WeightProfile;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Precompiled answer to "which layout should be used for this size?" for a single tree. The sizes
+ * are split into bands of heights, and every band into runs of widths that use the same layout.
+ * The layout is stored as its index in the getRanges vector of the root, and -1 means that there
+ * is no precompiled layout for that size. Both levels are sorted, so a lookup is two binary
+ * searches.
+ *
+ * <p>The layout chosen at a grid point is used for the whole cell up to the next one, and it may
+ * not fit every size of the cell, so the caller has to check the range it gets before using it.
+ *
+ * <p>A table is built by {@link com.prototype.smartlayout.utils.BreakpointTableCompiler} and only
+ * fits the tree, the distribution strategies and the weights it was compiled for.
+ * {@link #matches(LayoutContainer, WeightProfile)} checks that with the structural key and the
+ * number of ranges of the root, the strategies of its containers and the weight profile.
+ */
+public class BreakpointTable {
+	private static final int MAGIC = 0x534C4254;
+	// Version 3 also stores the distribution strategies.
+	private static final int VERSION = 3;
+
+	private final String structureKey;
+	private final int rangeCount;
+	// The distribution strategies of the containers, see distributionKey
+	private final String distributionKey;
+	@Getter
+	private final WeightProfile weightProfile;
+	// Whether only the layouts that fit a size were scored, or all of them
+	@Getter
+	private final boolean feasibleOnly;
+	// Sizes at or beyond these are not covered by the table.
+	private final int endWidth;
+	private final int endHeight;
+	// Band i covers the heights [bandHeights[i], bandHeights[i + 1])
+	private final int[] bandHeights;
+	// Run j of band i covers the widths [runWidths[i][j], runWidths[i][j + 1])
+	private final int[][] runWidths;
+	private final int[][] runLayouts;
+
+	private BreakpointTable (String structureKey, int rangeCount, String distributionKey, WeightProfile weightProfile, boolean feasibleOnly, int endWidth, int endHeight,
+			int[] bandHeights, int[][] runWidths, int[][] runLayouts) {
+		this.structureKey = structureKey;
+		this.rangeCount = rangeCount;
+		this.distributionKey = distributionKey;
+		this.weightProfile = weightProfile;
+		this.feasibleOnly = feasibleOnly;
+		this.endWidth = endWidth;
+		this.endHeight = endHeight;
+		this.bandHeights = bandHeights;
+		this.runWidths = runWidths;
+		this.runLayouts = runLayouts;
+	}
+
+	/**
+	 * Builds a table from the layouts chosen on a grid of sizes. The choice at a grid point is used
+	 * for the whole cell up to the next grid point. Neighbouring cells of a row with the same choice
+	 * become a single run, and neighbouring rows with the same runs become a single band.
+	 *
+	 * @param root          the tree the layouts were chosen for
+	 * @param weightProfile the weights the layouts were scored with
+	 * @param feasibleOnly  whether only the layouts that fit a size were scored
+	 * @param widths        the widths of the grid columns, ascending
+	 * @param heights       the heights of the grid rows, ascending
+	 * @param choices       choices[row][column] is the index of the chosen layout, or -1
+	 * @param endWidth      the first width after the last column
+	 * @param endHeight     the first height after the last row
+	 * @return the merged table
+	 */
+	public static BreakpointTable fromGrid (LayoutContainer root, WeightProfile weightProfile, boolean feasibleOnly, int[] widths, int[] heights, int[][] choices,
+			int endWidth, int endHeight) {
+		List<Integer> bandList = new ArrayList<>();
+		List<int[]> widthList = new ArrayList<>();
+		List<int[]> layoutList = new ArrayList<>();
+		for (int row = 0; row < heights.length; row++) {
+			int[] rowWidths = new int[widths.length];
+			int[] rowLayouts = new int[widths.length];
+			int runs = 0;
+			for (int column = 0; column < widths.length; column++) {
+				if (runs == 0 || rowLayouts[runs - 1] != choices[row][column]) {
+					rowWidths[runs] = widths[column];
+					rowLayouts[runs] = choices[row][column];
+					runs++;
+				}
+			}
+			rowWidths = Arrays.copyOf(rowWidths, runs);
+			rowLayouts = Arrays.copyOf(rowLayouts, runs);
+			int last = bandList.size() - 1;
+			if (last < 0 || !Arrays.equals(widthList.get(last), rowWidths) || !Arrays.equals(layoutList.get(last), rowLayouts)) {
+				bandList.add(heights[row]);
+				widthList.add(rowWidths);
+				layoutList.add(rowLayouts);
+			}
+		}
+		int[] bandHeights = new int[bandList.size()];
+		for (int i = 0; i < bandHeights.length; i++) {
+			bandHeights[i] = bandList.get(i);
+		}
+		return new BreakpointTable(root.getStructureKey(), root.getRanges().size(), distributionKey(root), weightProfile, feasibleOnly, endWidth, endHeight,
+				bandHeights, widthList.toArray(new int[0][]), layoutList.toArray(new int[0][]));
+	}
+
+	/**
+	 * @return true if this table was compiled for a tree with the same structure and distribution
+	 * strategies as root, and with the given weights
+	 */
+	public boolean matches (LayoutContainer root, WeightProfile weightProfile) {
+		return structureKey.equals(root.getStructureKey()) && rangeCount == root.getRanges().size() && distributionKey.equals(distributionKey(root))
+				&& this.weightProfile.equals(weightProfile);
+	}
+
+	/**
+	 * The strategies decide the sizes the layouts are scored at, so a table only fits the ones it
+	 * was compiled with. The structural key leaves them out.
+	 *
+	 * @return the effective distribution strategies of the containers of the tree in post-order,
+	 * by enum name or class name
+	 */
+	static String distributionKey (LayoutContainer root) {
+		StringBuilder builder = new StringBuilder();
+		for (LayoutContainer container : LayoutContainer.postOrder(root, container -> true)) {
+			DistributionStrategy strategy = container.getEffectiveDistributionStrategy();
+			if (builder.length() > 0) {
+				builder.append(',');
+			}
+			builder.append(strategy instanceof Enum ? ((Enum<?>) strategy).name() : strategy.getClass().getName());
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Finds the precompiled layout for the given size.
+	 *
+	 * @param w the width
+	 * @param h the height
+	 * @return the index of the layout in getRanges of the root, or -1 if there is none
+	 */
+	public int lookup (int w, int h) {
+		if (bandHeights.length == 0 || w >= endWidth || h >= endHeight || h < bandHeights[0]) {
+			return -1;
+		}
+		int band = floorIndex(bandHeights, h);
+		int[] widths = runWidths[band];
+		if (widths.length == 0 || w < widths[0]) {
+			return -1;
+		}
+		return runLayouts[band][floorIndex(widths, w)];
+	}
+
+	private static int floorIndex (int[] values, int value) {
+		int index = Arrays.binarySearch(values, value);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	public int getBandCount () {
+		return bandHeights.length;
+	}
+
+	public int getRunCount () {
+		int count = 0;
+		for (int[] widths : runWidths) {
+			count += widths.length;
+		}
+		return count;
+	}
+
+	public void write (OutputStream outputStream) throws IOException {
+		DataOutputStream out = new DataOutputStream(outputStream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		byte[] key = structureKey.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(key.length);
+		out.write(key);
+		out.writeInt(rangeCount);
+		byte[] distribution = distributionKey.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(distribution.length);
+		out.write(distribution);
+		out.writeUTF(weightProfile.toString());
+		out.writeBoolean(feasibleOnly);
+		out.writeInt(endWidth);
+		out.writeInt(endHeight);
+		out.writeInt(bandHeights.length);
+		for (int band = 0; band < bandHeights.length; band++) {
+			out.writeInt(bandHeights[band]);
+			out.writeInt(runWidths[band].length);
+			for (int run = 0; run < runWidths[band].length; run++) {
+				out.writeInt(runWidths[band][run]);
+				out.writeInt(runLayouts[band][run]);
+			}
+		}
+		out.flush();
+	}
+
+	public static BreakpointTable read (InputStream inputStream) throws IOException {
+		DataInputStream in = new DataInputStream(inputStream);
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a breakpoint table");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported breakpoint table version: " + version);
+		}
+		byte[] key = new byte[in.readInt()];
+		in.readFully(key);
+		int rangeCount = in.readInt();
+		byte[] distribution = new byte[in.readInt()];
+		in.readFully(distribution);
+		WeightProfile weightProfile;
+		try {
+			weightProfile = WeightProfile.parse(in.readUTF());
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupt breakpoint table weights", e);
+		}
+		boolean feasibleOnly = in.readBoolean();
+		int endWidth = in.readInt();
+		int endHeight = in.readInt();
+		int bandCount = in.readInt();
+		int[] bandHeights = new int[bandCount];
+		int[][] runWidths = new int[bandCount][];
+		int[][] runLayouts = new int[bandCount][];
+		for (int band = 0; band < bandCount; band++) {
+			bandHeights[band] = in.readInt();
+			int runCount = in.readInt();
+			runWidths[band] = new int[runCount];
+			runLayouts[band] = new int[runCount];
+			for (int run = 0; run < runCount; run++) {
+				runWidths[band][run] = in.readInt();
+				runLayouts[band][run] = in.readInt();
+			}
+		}
+		return new BreakpointTable(new String(key, StandardCharsets.UTF_8), rangeCount, new String(distribution, StandardCharsets.UTF_8), weightProfile, feasibleOnly,
+				endWidth, endHeight, bandHeights, runWidths, runLayouts);
+	}
+
+	public void write (Path path) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+			write(out);
+		}
+	}
+
+	public static BreakpointTable read (Path path) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+			return read(in);
+		}
+	}
+}
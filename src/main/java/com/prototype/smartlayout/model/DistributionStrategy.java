@@ -0,0 +1,25 @@
+package com.prototype.smartlayout.model;
+
+/**
+ * Splits the width (HORIZONTAL) or the height (VERTICAL) of a container among its children when
+ * it is laid out. The strategy is taken from the container, see
+ * {@link LayoutContainer#setDistributionStrategy(DistributionStrategy)}, or from
+ * {@link LayoutContainer#setDefaultDistributionStrategy(DistributionStrategy)} if the container has
+ * none.
+ *
+ * <p>The arrays are buffers that the caller reuses between containers, so they may be longer than
+ * the number of children, and an implementation should not allocate on every call. Whether the
+ * children can be laid out with the sizes they get is checked by the children themselves.
+ */
+public interface DistributionStrategy {
+
+	/**
+	 * @param minValues    the min width or height of each child
+	 * @param maxValues    the max width or height of each child
+	 * @param count        the number of children, only this many entries of the arrays are used
+	 * @param total        the width or height to distribute
+	 * @param distribution receives the size given to each child, all of its first count entries
+	 *                     are written
+	 */
+	void distribute (int[] minValues, int[] maxValues, int count, int total, int[] distribution);
+}
@@ -0,0 +1,218 @@
+package com.prototype.smartlayout.model;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Upper bounds on the work of {@link LayoutContainer#getRanges()}, computed from the shape of the
+ * tree alone, and the budget that enumeration has to stay within.
+ *
+ * <p>A component has a single range. A container with children c1..ck has at most
+ * n(c1) * ... * n(ck) ranges per orientation, of which there are two, or one for a single child,
+ * and while they are combined every prefix c1..ci creates up to n(c1) * ... * n(ci) intermediate
+ * ranges, which stay reachable through the shared prefixes of the final ones. The bounds ignore
+ * infeasible combinations and pruning, so the real numbers are usually much smaller, by orders of
+ * magnitude for larger trees. Containers whose ranges are memoized already count with their exact
+ * number and create nothing. All values saturate at Long.MAX_VALUE.
+ *
+ * <p>So the bound alone only tells that an enumeration surely fits into the budget. Otherwise the
+ * enumeration is exact as long as the ranges it really creates fit, which a {@link Counter} checks
+ * while they are created, and only if they do not the heuristic mode is used, see
+ * {@link LayoutContainer#getRanges()}.
+ *
+ * <p>By default the budget is as many ranges as fit into the maximum heap.
+ */
+public final class EnumerationBudget {
+	// Rough size of a range with its one element sub range vector, in bytes.
+	public static final long BYTES_PER_RANGE = 104;
+	// The enumerations count the ranges they create in batches of about this many.
+	static final int COUNT_BATCH = 1 << 12;
+
+	private static volatile long maxRanges = Runtime.getRuntime().maxMemory() / BYTES_PER_RANGE;
+	private static volatile int rangeLimit = 1 << 12;
+
+	private EnumerationBudget () {
+	}
+
+	/**
+	 * @return the most ranges a single enumeration may create before the heuristic mode is used
+	 */
+	public static long getMaxRanges () {
+		return maxRanges;
+	}
+
+	public static void setMaxRanges (long maxRanges) {
+		EnumerationBudget.maxRanges = maxRanges;
+	}
+
+	/**
+	 * @return the most ranges kept after every combination step in the heuristic mode
+	 */
+	public static int getRangeLimit () {
+		return rangeLimit;
+	}
+
+	public static void setRangeLimit (int rangeLimit) {
+		EnumerationBudget.rangeLimit = rangeLimit;
+	}
+
+	/**
+	 * @return true if enumerating the given subtree surely stays within the budget
+	 */
+	public static boolean allows (Layoutable layoutable) {
+		return estimate(layoutable).getCreatedRangeCount() <= maxRanges;
+	}
+
+	/**
+	 * @return the counter for an enumeration of the given subtree, which only counts if the upper
+	 * bound does not fit into the budget
+	 */
+	static Counter counter (Layoutable layoutable) {
+		return allows(layoutable) ? Counter.UNLIMITED : new Counter(maxRanges);
+	}
+
+	/**
+	 * Walks the subtree and computes the upper bounds without creating any range.
+	 *
+	 * @param layoutable the root of the subtree
+	 * @return the estimate for the subtree
+	 */
+	public static Estimate estimate (Layoutable layoutable) {
+		if (!(layoutable instanceof LayoutContainer)) {
+			return estimate(layoutable, null);
+		}
+		// Children first, without recursion, so deep trees can be estimated as well.
+		Map<Layoutable, Estimate> estimates = new IdentityHashMap<>();
+		for (LayoutContainer container : LayoutContainer.postOrder((LayoutContainer) layoutable, container -> container.getMemo() == null)) {
+			estimates.put(container, estimate(container, estimates));
+		}
+		return estimate(layoutable, estimates);
+	}
+
+	/**
+	 * Estimates a single layoutable from the estimates of the child containers that are not
+	 * memoized.
+	 */
+	private static Estimate estimate (Layoutable layoutable, Map<Layoutable, Estimate> estimates) {
+		if (!(layoutable instanceof LayoutContainer)) {
+			return new Estimate(1, 0);
+		}
+		Vector<WidthHeightRange> memo = ((LayoutContainer) layoutable).getMemo();
+		if (memo != null) {
+			return new Estimate(memo.size(), 0);
+		}
+		Estimate known = estimates.get(layoutable);
+		if (known != null) {
+			return known;
+		}
+		int orientationCount = ((LayoutContainer) layoutable).hasDistinctOrientations() ? 2 : 1;
+		long rangeCount = 0;
+		long createdRangeCount = 0;
+		long prefixCount = 1;
+		boolean first = true;
+		for (Layoutable child : ((LayoutContainer) layoutable).getChildren()) {
+			Estimate childEstimate = estimate(child, estimates);
+			createdRangeCount = add(createdRangeCount, childEstimate.getCreatedRangeCount());
+			prefixCount = multiply(prefixCount, childEstimate.getRangeCount());
+			// Every prefix is created once per orientation
+			createdRangeCount = add(createdRangeCount, multiply(prefixCount, orientationCount));
+			rangeCount = multiply(prefixCount, orientationCount);
+			first = false;
+		}
+		return new Estimate(first ? 0 : rangeCount, createdRangeCount);
+	}
+
+	private static long add (long a, long b) {
+		long sum = a + b;
+		return sum < 0 ? Long.MAX_VALUE : sum;
+	}
+
+	private static long multiply (long a, long b) {
+		if (a == 0 || b == 0) {
+			return 0;
+		}
+		return a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+	}
+
+	/**
+	 * Counts the ranges an enumeration really creates, intermediate ones included, and stops it with
+	 * an {@link ExceededException} as soon as they are more than the limit. Once exceeded, it stays
+	 * exceeded, so the other tasks of a parallel enumeration stop as well and do not store their
+	 * ranges. The workers of a parallel enumeration share a counter.
+	 */
+	static final class Counter {
+		// For the enumerations that surely fit, does not count at all
+		static final Counter UNLIMITED = new Counter(Long.MAX_VALUE);
+
+		private final long limit;
+		private final AtomicLong count = new AtomicLong();
+		private volatile boolean exceeded = false;
+
+		private Counter (long limit) {
+			this.limit = limit;
+		}
+
+		/**
+		 * @param created the number of ranges created since the last call
+		 * @throws ExceededException if the ranges created so far are more than the limit
+		 */
+		void add (long created) {
+			if (limit == Long.MAX_VALUE) {
+				return;
+			}
+			if (count.addAndGet(created) > limit) {
+				exceeded = true;
+			}
+			check();
+		}
+
+		/**
+		 * @throws ExceededException if the limit was exceeded by any of the tasks
+		 */
+		void check () {
+			if (exceeded) {
+				throw new ExceededException(count.get(), limit);
+			}
+		}
+
+		boolean isExceeded () {
+			return exceeded;
+		}
+	}
+
+	/**
+	 * Thrown by {@link Counter#add(long)} when an enumeration creates more ranges than the budget.
+	 */
+	static final class ExceededException extends RuntimeException {
+		private static final long serialVersionUID = 2894187311604128715L;
+
+		private ExceededException (long count, long limit) {
+			super("Created " + count + " ranges, which is over the budget of " + limit + " ranges");
+		}
+	}
+
+	@Getter
+	@AllArgsConstructor
+	public static class Estimate {
+		// The most ranges getRanges can return for the subtree
+		private final long rangeCount;
+		// The most ranges created while enumerating the whole subtree, intermediate ones included
+		private final long createdRangeCount;
+
+		/**
+		 * @return the most heap in bytes the ranges of the whole enumeration can take
+		 */
+		public long getBytes () {
+			return multiply(createdRangeCount, BYTES_PER_RANGE);
+		}
+
+		@Override
+		public String toString () {
+			return "at most " + rangeCount + " ranges, " + createdRangeCount + " created, " + getBytes() / 1024 + " KB";
+		}
+	}
+}
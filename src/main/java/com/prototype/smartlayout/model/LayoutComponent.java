@@ -1,6 +1,7 @@
 package com.prototype.smartlayout.model;
 
 import java.util.Vector;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
@@ -10,11 +11,17 @@ import lombok.extern.log4j.Log4j2;
 @Log4j2
 public class LayoutComponent implements Layoutable {
 	private final WidthHeightRange widthHeightRange;
+	private final RangeStore rangeStore;
 	private final String label;
 	private boolean isFeasible;
+	// Written by LayoutWalker with assign, the setters are for everyone else, see LayoutWalker.LastLayout
+	@Setter(AccessLevel.NONE)
 	private int assignedX;
+	@Setter(AccessLevel.NONE)
 	private int assignedY;
+	@Setter(AccessLevel.NONE)
 	private int assignedWidth;
+	@Setter(AccessLevel.NONE)
 	private int assignedHeight;
 
 	public LayoutComponent (String name, WidthHeightRange widthHeightRange) {
@@ -22,6 +29,7 @@ public class LayoutComponent implements Layoutable {
 		assignedX = 0;
 		assignedY = 0;
 		this.widthHeightRange = widthHeightRange;
+		rangeStore = RangeStore.of(widthHeightRange);
 		assignedWidth = widthHeightRange.getMinWidth();
 		assignedHeight = widthHeightRange.getMinHeight();
 	}
@@ -72,11 +80,32 @@ public class LayoutComponent implements Layoutable {
 		return vec;
 	}
 
+	/**
+	 * Components with the same orientation and min/max values are interchangeable when ranges are
+	 * enumerated, so only those go into the key.
+	 */
+	@Override
+	public String getStructureKey () {
+		return "L" + widthHeightRange.getOrientationStrategy()
+				+ ":" + widthHeightRange.getMinWidth()
+				+ "," + widthHeightRange.getMaxWidth()
+				+ "," + widthHeightRange.getMinHeight()
+				+ "," + widthHeightRange.getMaxHeight()
+				+ ";";
+	}
+
+	@Override
+	public Vector<WidthHeightRange> getRanges (int width, int height) {
+		Vector<WidthHeightRange> vec = new Vector<>();
+		if (widthHeightRange.getMinWidth() <= width && widthHeightRange.getMinHeight() <= height) {
+			vec.add(widthHeightRange);
+		}
+		return vec;
+	}
+
 	@Override
 	public boolean layout (int x, int y, int w, int h, WidthHeightRange whr) {
 		// This is the main method that does the computation of layout
-		setAssignedX(x);
-		setAssignedY(y);
 //		if (w < whr.getMinWidth()) {
 //			setAssignedWidth(whr.getMinWidth());
 //		} else if (w > whr.getMaxWidth()) {
@@ -91,12 +120,61 @@ public class LayoutComponent implements Layoutable {
 //		} else {
 //			setAssignedHeight(h);
 //		}
+		// Laid out on its own, not by the walk of its container, so the last layouts are outdated.
+		LayoutWalker.invalidateLastLayouts();
+		return assign(x, y, w, h, w >= whr.getMinWidth() && w <= whr.getMaxWidth() && h >= whr.getMinHeight() && h <= whr.getMaxHeight());
+	}
 
-		setAssignedWidth(w);
-		setAssignedHeight(h);
+	@Override
+	public boolean layout (int x, int y, int w, int h, RangeStore store, int index) {
+		LayoutWalker.invalidateLastLayouts();
+		return assign(x, y, w, h, store.isFeasible(index, w, h));
+	}
 
-		setFeasible(w >= whr.getMinWidth() && w <= whr.getMaxWidth() && h >= whr.getMinHeight() && h <= whr.getMaxHeight());
+	/**
+	 * Sets the bounds without invalidating the last layouts, for {@link LayoutWalker} only.
+	 *
+	 * @return whether the bounds are feasible
+	 */
+	boolean assign (int x, int y, int w, int h, boolean feasible) {
+		assignedX = x;
+		assignedY = y;
+		assignedWidth = w;
+		assignedHeight = h;
+		setFeasible(feasible);
 //		log.debug(label + " - X: " + x + " Y: "+ y + " Width: " + w + " Height: " + h);
 		return isFeasible;
 	}
+
+	@Override
+	public void setAssignedX (int x) {
+		if (assignedX != x) {
+			assignedX = x;
+			LayoutWalker.invalidateLastLayouts();
+		}
+	}
+
+	@Override
+	public void setAssignedY (int y) {
+		if (assignedY != y) {
+			assignedY = y;
+			LayoutWalker.invalidateLastLayouts();
+		}
+	}
+
+	@Override
+	public void setAssignedWidth (int w) {
+		if (assignedWidth != w) {
+			assignedWidth = w;
+			LayoutWalker.invalidateLastLayouts();
+		}
+	}
+
+	@Override
+	public void setAssignedHeight (int h) {
+		if (assignedHeight != h) {
+			assignedHeight = h;
+			LayoutWalker.invalidateLastLayouts();
+		}
+	}
 }
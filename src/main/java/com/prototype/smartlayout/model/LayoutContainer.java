@@ -1,11 +1,18 @@
 package com.prototype.smartlayout.model;
 
+import com.prototype.smartlayout.model.enums.DistributionStrategyEnum;
 import com.prototype.smartlayout.model.enums.WidthHeightRangeEnum;
-import com.prototype.smartlayout.utils.ArrayIndexComparator;
 import com.prototype.smartlayout.utils.LayoutContainerUtils;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.IntSummaryStatistics;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
@@ -15,13 +22,37 @@ import lombok.extern.log4j.Log4j2;
 @Log4j2
 public class LayoutContainer implements Layoutable {
 
+	private static volatile DistributionStrategy defaultDistributionStrategy = DistributionStrategyEnum.BALANCE;
 	private final Vector<Layoutable> children;
+	// The container that has this one as a child, used to invalidate the memos up to the root.
+	@Setter(AccessLevel.NONE)
+	private LayoutContainer parent = null;
 	private String id;
+	// Written by LayoutWalker, the setters are for everyone else, see invalidateBounds
+	@Setter(AccessLevel.NONE)
 	private int assignedX;
+	@Setter(AccessLevel.NONE)
 	private int assignedY;
+	@Setter(AccessLevel.NONE)
 	private int assignedWidth;
+	@Setter(AccessLevel.NONE)
 	private int assignedHeight;
-	private Vector<WidthHeightRange> memo = null;
+	private volatile Vector<WidthHeightRange> memo = null;
+	private volatile RangeStore rangeStore = null;
+	private volatile RangeIndex rangeIndex = null;
+	@Setter(AccessLevel.NONE)
+	private volatile String structureKey = null;
+	// When enabled, ranges covered by another range of the same container are dropped while enumerating.
+	private boolean rangePruning = false;
+	// When above 0, at most this many ranges are kept after every combination step, see useHeuristicMode.
+	private int rangeLimit = 0;
+	private int prunedRangeCount = 0;
+	// How the size of this container is split among the children, null for the default one.
+	private volatile DistributionStrategy distributionStrategy = null;
+	// What this container was laid out with last time, so it can be laid out again incrementally.
+	@Getter(AccessLevel.PACKAGE)
+	@Setter(AccessLevel.NONE)
+	private final LayoutWalker.LastLayout lastLayout = new LayoutWalker.LastLayout();
 
 	public LayoutContainer (String id) {
 		this.id = id;
@@ -30,7 +61,7 @@ public class LayoutContainer implements Layoutable {
 
 	public LayoutContainer (String id, Layoutable... layoutables) {
 		this(id);
-		children.addAll(Arrays.asList(layoutables));
+		addComponent(layoutables);
 	}
 
 	/**
@@ -75,446 +106,902 @@ public class LayoutContainer implements Layoutable {
 	 * <li>The total of eight layouts are returned as the result.
 	 * </ul>
 	 *
+	 * <p>Equivalent layouts are collapsed while enumerating: a container with a single child lays it
+	 * out the same way under both strategies, so only its HORIZONTAL layouts are created, see
+	 * {@link #hasDistinctOrientations()}.
+	 *
+	 * <p>If range pruning is enabled, every intermediate and final vector is cleared of ranges whose
+	 * min/max envelope is covered by another range, see
+	 * {@link LayoutContainerUtils#pruneDominatedRanges(Vector)}. The number of removed ranges is
+	 * kept in prunedRangeCount.
+	 *
+	 * <p>Unless its upper bound fits into the {@link EnumerationBudget}, the ranges created while
+	 * enumerating are counted. If they go over the budget, the enumeration is stopped and started
+	 * again in the heuristic mode, see {@link #useHeuristicMode()}.
+	 *
+	 * <p>The containers are enumerated without recursion: the ones below this container that are not
+	 * memoized yet are listed in post-order with {@link #postOrder(LayoutContainer, Predicate)} and
+	 * enumerated one by one, so the ranges of the children are always memoized when a container is
+	 * combined.
+	 *
 	 * @return All possible layout combinations for this container.
 	 */
 	@Override
-	public Vector<WidthHeightRange> getRanges () {
-		// vec is what we will return at the end.
-		// movingRanges and tempRanges are used temporarily for creating all possible layouts.
-
+	public synchronized Vector<WidthHeightRange> getRanges () {
 		// if we already calculated it no need to do it again.
 		if (memo != null) {
 			return memo;
 		}
+		try {
+			return enumerateSubtree(budgetCounter());
+		} catch (EnumerationBudget.ExceededException e) {
+			log.warn("LayoutContainer with id: " + id + ": " + e.getMessage() + ". Switching to heuristic enumeration.");
+			useHeuristicMode();
+			return enumerateSubtree(EnumerationBudget.Counter.UNLIMITED);
+		}
+	}
 
-		Vector<WidthHeightRange> movingRanges = new Vector<>();
-		Vector<WidthHeightRange> tempRanges = new Vector<>();
+	private Vector<WidthHeightRange> enumerateSubtree (EnumerationBudget.Counter counter) {
+		// A structurally identical subtree may have been enumerated already, or a snapshot loaded, so
+		// the subtrees with known ranges are skipped.
+		for (LayoutContainer container : postOrder(this, container -> container.useKnownRanges() == null)) {
+			container.enumerateRanges(counter);
+		}
+		return enumerateRanges(counter);
+	}
 
-		// First, the HORIZONTAL orientation strategy
+	/**
+	 * @return the counter for enumerating this subtree, which does not count in the heuristic mode
+	 * or when the ranges are already known
+	 */
+	private EnumerationBudget.Counter budgetCounter () {
+		if (rangeLimit > 0 || rangeStore != null) {
+			return EnumerationBudget.Counter.UNLIMITED;
+		}
+		return EnumerationBudget.counter(this);
+	}
 
-		// We will iterate over all children and one by one integrate them to the solution
+	/**
+	 * Combines the ranges of the children into the ranges of this container, see
+	 * {@link #getRanges()}. The child containers are expected to be memoized already.
+	 */
+	private synchronized Vector<WidthHeightRange> enumerateRanges (EnumerationBudget.Counter counter) {
+		if (memo != null) {
+			return memo;
+		}
+		// Get all possible ranges (layouts) for each child, the child containers return their memo.
+		List<Vector<WidthHeightRange>> childRanges = new ArrayList<>(children.size());
 		for (Layoutable layoutable : children) {
-			// Get all possible ranges (layouts) for the layoutable child, layoutable
-			Vector<WidthHeightRange> compVec = layoutable.getRanges(); // inside recursion, keep the calculated values.
-			tempRanges.clear();
+			childRanges.add(layoutable.getRanges());
+		}
+		prunedRangeCount = 0;
 
-			if (movingRanges.isEmpty()) {
-				// If this is the first component, we simply fill the movingRanges data
-				// based on this component
+		// First, the HORIZONTAL orientation strategy, then the VERTICAL one.
+		Vector<WidthHeightRange> vec = combineRanges(WidthHeightRangeEnum.HORIZONTAL, childRanges, counter);
+		if (hasDistinctOrientations()) {
+			vec.addAll(combineRanges(WidthHeightRangeEnum.VERTICAL, childRanges, counter));
+		}
+		return storeRanges(vec, counter);
+	}
 
-				for (WidthHeightRange whr : compVec) {
-					WidthHeightRange newRange = new WidthHeightRange(whr);
-					newRange.setOrientationStrategy(WidthHeightRangeEnum.HORIZONTAL);
-					newRange.addSubRange(whr);
-					movingRanges.add(newRange);
-				}
-			} else {
-				// If this is not the first child, then we already have some ranges computed
-				// in movingRanges.
-				// For all other children, we compute the product with existing
-				// movingRanges data and obtain the new movingRanges.
+	/**
+	 * Returns only the layouts of this container that can fit into the given size, see
+	 * {@link Layoutable#getRanges(int, int)}. The bounds are passed down to the children, and while
+	 * the children are combined a partial combination is dropped as soon as its min width or min
+	 * height exceeds the bounds. Its min values can only grow when more children are added, so none
+	 * of its combinations could fit either. If the ranges are already memoized, here or in the
+	 * {@link SharedRangeMemo}, they are filtered instead. The result is not memoized since it
+	 * depends on the size.
+	 *
+	 * <p>Like {@link #getRanges()}, the ranges are pruned and trimmed in the heuristic mode, and if
+	 * they go over the {@link EnumerationBudget} the heuristic mode is used for this subtree.
+	 *
+	 * @param width  the available width
+	 * @param height the available height
+	 * @return the layouts whose min width and min height fit into the given size
+	 */
+	@Override
+	public Vector<WidthHeightRange> getRanges (int width, int height) {
+		try {
+			return enumerateRanges(width, height, budgetCounter());
+		} catch (EnumerationBudget.ExceededException e) {
+			log.warn("LayoutContainer with id: " + id + ": " + e.getMessage() + ". Switching to heuristic enumeration.");
+			useHeuristicMode();
+			return enumerateRanges(width, height, EnumerationBudget.Counter.UNLIMITED);
+		}
+	}
 
-				for (WidthHeightRange whr : movingRanges) {
-					for (WidthHeightRange whrNew : compVec) {
-						// Since this is horizontal, we know how to compute the new range:
-						int newMinWidth = whr.getMinWidth() + whrNew.getMinWidth();
-						int newMaxWidth = whr.getMaxWidth() + whrNew.getMaxWidth();
-						int newMinHeight = Math.max(whr.getMinHeight(), whrNew.getMinHeight());
-						int newMaxHeight = Math.min(whr.getMaxHeight(), whrNew.getMaxHeight());
-
-						// Make sure that newMaxHeight is greater than newMinHeight.
-						// Otherwise we have an infeasible layout. This only should happen
-						// if the height ranges of the two children are not intersecting.
-
-						if (newMaxHeight >= newMinHeight) {
-							// Now create the new range object and add it to the temp vector:
-							WidthHeightRange newRange =
-									new WidthHeightRange(
-											WidthHeightRangeEnum.HORIZONTAL,
-											newMinWidth,
-											newMaxWidth,
-											newMinHeight,
-											newMaxHeight);
-							newRange.addSubRanges(whr.getSubRanges());
-							newRange.addSubRange(whrNew);
-							tempRanges.add(newRange);
-						} // else koşulunda max - min lik bir filler yapılabilir
-					}
+	private Vector<WidthHeightRange> enumerateRanges (int width, int height, EnumerationBudget.Counter counter) {
+		Vector<WidthHeightRange> ranges = memo != null ? memo : SharedRangeMemo.get(getStructureKey());
+		if (ranges != null) {
+			Vector<WidthHeightRange> vec = new Vector<>();
+			for (WidthHeightRange whr : ranges) {
+				if (whr.getMinWidth() <= width && whr.getMinHeight() <= height) {
+					vec.add(whr);
 				}
-
-				//==============
-				// Check if tempRAnges is empty
-				// If so, we cannot feasibly layout this container.
-				// We hould immediately stop the horizontal layout process. and also do not update vec below.
-				movingRanges.clear();
-				movingRanges.addAll(tempRanges);
 			}
+			return vec;
 		}
 
-		// If the above check failed, do not update vec.
-		Vector<WidthHeightRange> vec = new Vector<>(movingRanges);
+		// The child containers count against the same budget.
+		List<Vector<WidthHeightRange>> childRanges = new ArrayList<>(children.size());
+		for (Layoutable layoutable : children) {
+			if (layoutable instanceof LayoutContainer) {
+				childRanges.add(((LayoutContainer) layoutable).enumerateRanges(width, height, counter));
+			} else {
+				childRanges.add(layoutable.getRanges(width, height));
+			}
+		}
+		Vector<WidthHeightRange> vec = combineRanges(WidthHeightRangeEnum.HORIZONTAL, childRanges, width, height, counter);
+		if (hasDistinctOrientations()) {
+			vec.addAll(combineRanges(WidthHeightRangeEnum.VERTICAL, childRanges, width, height, counter));
+		}
+		pruneAndTrimRanges(vec);
+		return vec;
+	}
 
-		// Now, the VERTICAL orientation strategy
+	private Vector<WidthHeightRange> combineRanges (WidthHeightRangeEnum orientationStrategy, List<Vector<WidthHeightRange>> childRanges, int width, int height,
+			EnumerationBudget.Counter counter) {
+		Vector<WidthHeightRange> movingRanges = new Vector<>();
+		for (int i = 0; i < childRanges.size(); i++) {
+			Vector<WidthHeightRange> compVec = childRanges.get(i);
+			if (i == 0) {
+				movingRanges = wrapRanges(orientationStrategy, compVec);
+				counter.add(movingRanges.size());
+			} else {
+				movingRanges = multiplyRanges(orientationStrategy, movingRanges, 0, movingRanges.size(), compVec, width, height, counter);
+			}
+			pruneAndTrimRanges(movingRanges);
+			if (movingRanges.isEmpty()) {
+				break;
+			}
+		}
+		return movingRanges;
+	}
 
-		movingRanges.clear();
+	/**
+	 * A single child gets the whole width and height of its container under both strategies as long
+	 * as the size fits into its ranges, and is infeasible under both otherwise. Its VERTICAL layouts
+	 * would only repeat the HORIZONTAL ones with the same envelopes, so they are left out and
+	 * HORIZONTAL is the canonical form.
+	 *
+	 * @return true if the HORIZONTAL and VERTICAL layouts of this container differ
+	 */
+	boolean hasDistinctOrientations () {
+		return children.size() > 1;
+	}
 
-		for (Layoutable layoutable : children) {
-			Vector<WidthHeightRange> compVec = layoutable.getRanges(); // inside recursion, keep the calculated values.
-			tempRanges.clear();
+	/**
+	 * Computes all layouts of this container under a single orientation strategy, given the ranges
+	 * of all children. See {@link #getRanges()} for how the combinations are built.
+	 *
+	 * @param orientationStrategy HORIZONTAL or VERTICAL
+	 * @param childRanges         the ranges of each child, in the order of the children
+	 * @param counter             counts the created ranges against the budget
+	 * @return all feasible layouts of this container for the given orientation
+	 */
+	Vector<WidthHeightRange> combineRanges (WidthHeightRangeEnum orientationStrategy, List<Vector<WidthHeightRange>> childRanges, EnumerationBudget.Counter counter) {
+		// movingRanges is used temporarily for creating all possible layouts.
+		Vector<WidthHeightRange> movingRanges = new Vector<>();
 
-			if (movingRanges.isEmpty()) {
+		// We will iterate over all children and one by one integrate them to the solution
+		for (int i = 0; i < childRanges.size(); i++) {
+			Vector<WidthHeightRange> compVec = childRanges.get(i);
+			if (i == 0) {
 				// If this is the first component, we simply fill the movingRanges data
 				// based on this component
-
-				for (WidthHeightRange whr : compVec) {
-					WidthHeightRange newRange = new WidthHeightRange(whr);
-					newRange.setOrientationStrategy(WidthHeightRangeEnum.VERTICAL);
-					newRange.addSubRange(whr);
-					movingRanges.add(newRange);
-				}
+				movingRanges = wrapRanges(orientationStrategy, compVec);
+				counter.add(movingRanges.size());
 			} else {
+				// If this is not the first child, then we already have some ranges computed
+				// in movingRanges.
 				// For all other children, we compute the product with existing
 				// movingRanges data and obtain the new movingRanges.
+				movingRanges = multiplyRanges(orientationStrategy, movingRanges, 0, movingRanges.size(), compVec, counter);
+			}
+			pruneRanges(movingRanges);
+			if (movingRanges.isEmpty()) {
+				// We cannot feasibly layout this container with this orientation, so stop here instead
+				// of starting over with the next child as if it was the first one.
+				break;
+			}
+		}
+		return movingRanges;
+	}
 
-				for (WidthHeightRange whr : movingRanges) {
-					for (WidthHeightRange whrNew : compVec) {
-						// Since this is vertical, we know how to compute the new range:
-						int newMinWidth = Math.max(whr.getMinWidth(), whrNew.getMinWidth());
-						int newMaxWidth = Math.min(whr.getMaxWidth(), whrNew.getMaxWidth());
-						int newMinHeight = whr.getMinHeight() + whrNew.getMinHeight();
-						int newMaxHeight = whr.getMaxHeight() + whrNew.getMaxHeight();
-
-						// Make sure that newMaxWidth is greater than newMinWidth.
-						// Otherwise we have an infeasible layout. This only should happen
-						// if the width ranges of the two children are not intersecting.
-
-						if (newMaxWidth >= newMinWidth) {
-							// Now create the new range object and add it to the temp vector:
-							WidthHeightRange newRange =
-									new WidthHeightRange(
-											WidthHeightRangeEnum.VERTICAL,
-											newMinWidth,
-											newMaxWidth,
-											newMinHeight,
-											newMaxHeight);
-							newRange.addSubRanges(whr.getSubRanges());
-							newRange.addSubRange(whrNew);
-							tempRanges.add(newRange);
-						} // else koşulunda max - min lik bir filler yapılabilir
-					}
+	static Vector<WidthHeightRange> wrapRanges (WidthHeightRangeEnum orientationStrategy, Vector<WidthHeightRange> compVec) {
+		Vector<WidthHeightRange> ranges = new Vector<>(compVec.size());
+		for (WidthHeightRange whr : compVec) {
+			WidthHeightRange newRange = new WidthHeightRange(whr);
+			newRange.setOrientationStrategy(orientationStrategy);
+			newRange.addSubRange(whr);
+			ranges.add(newRange);
+		}
+		return ranges;
+	}
+
+	/**
+	 * Combines the moving ranges in [from, to) with every range of the next child. The created
+	 * combinations are added to the counter while they are created, so a product over the budget
+	 * is stopped before it is complete.
+	 *
+	 * @return the feasible combinations, in the order of the moving ranges and then the child ranges
+	 * @throws EnumerationBudget.ExceededException if the counter goes over the budget
+	 */
+	static Vector<WidthHeightRange> multiplyRanges (WidthHeightRangeEnum orientationStrategy, List<WidthHeightRange> movingRanges, int from, int to, Vector<WidthHeightRange> compVec, EnumerationBudget.Counter counter) {
+		return multiplyRanges(orientationStrategy, movingRanges, from, to, compVec, Integer.MAX_VALUE, Integer.MAX_VALUE, counter);
+	}
+
+	/**
+	 * Same as {@link #multiplyRanges(WidthHeightRangeEnum, List, int, int, Vector, EnumerationBudget.Counter)},
+	 * but combinations whose min width or min height is already larger than the given bounds are
+	 * not created.
+	 */
+	static Vector<WidthHeightRange> multiplyRanges (WidthHeightRangeEnum orientationStrategy, List<WidthHeightRange> movingRanges, int from, int to, Vector<WidthHeightRange> compVec, int width, int height, EnumerationBudget.Counter counter) {
+		Vector<WidthHeightRange> tempRanges = new Vector<>();
+		boolean horizontal = WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy);
+		int counted = 0;
+		for (int i = from; i < to; i++) {
+			WidthHeightRange whr = movingRanges.get(i);
+			for (WidthHeightRange whrNew : compVec) {
+				int newMinWidth;
+				int newMaxWidth;
+				int newMinHeight;
+				int newMaxHeight;
+				if (horizontal) {
+					// Since this is horizontal, we know how to compute the new range:
+					newMinWidth = whr.getMinWidth() + whrNew.getMinWidth();
+					newMaxWidth = whr.getMaxWidth() + whrNew.getMaxWidth();
+					newMinHeight = Math.max(whr.getMinHeight(), whrNew.getMinHeight());
+					newMaxHeight = Math.min(whr.getMaxHeight(), whrNew.getMaxHeight());
+				} else {
+					// Since this is vertical, we know how to compute the new range:
+					newMinWidth = Math.max(whr.getMinWidth(), whrNew.getMinWidth());
+					newMaxWidth = Math.min(whr.getMaxWidth(), whrNew.getMaxWidth());
+					newMinHeight = whr.getMinHeight() + whrNew.getMinHeight();
+					newMaxHeight = whr.getMaxHeight() + whrNew.getMaxHeight();
 				}
 
-				//==============
-				// Similaryl check feasibility and only update if feasible layouts exist
-				movingRanges.clear();
-				movingRanges.addAll(tempRanges);
+				// Make sure that the new max is greater than the new min on the shared axis.
+				// Otherwise we have an infeasible layout. This only should happen
+				// if the ranges of the two children are not intersecting.
+				if ((horizontal ? newMaxHeight >= newMinHeight : newMaxWidth >= newMinWidth) && newMinWidth <= width && newMinHeight <= height) {
+					// Now create the new range object and add it to the temp vector:
+					WidthHeightRange newRange =
+							new WidthHeightRange(
+									orientationStrategy,
+									newMinWidth,
+									newMaxWidth,
+									newMinHeight,
+									newMaxHeight);
+					// Share the sub ranges of whr instead of copying them into every combination.
+					newRange.addSubRangesOf(whr);
+					newRange.addSubRange(whrNew);
+					tempRanges.add(newRange);
+				} // else koşulunda max - min lik bir filler yapılabilir
+			}
+			if (tempRanges.size() - counted >= EnumerationBudget.COUNT_BATCH) {
+				counter.add(tempRanges.size() - counted);
+				counted = tempRanges.size();
 			}
 		}
+		counter.add(tempRanges.size() - counted);
+		return tempRanges;
+	}
 
-		// Update only if feasiblity checks returned true
-		vec.addAll(movingRanges);
+	/**
+	 * Prunes the final vector if needed and memoizes it. If another thread already stored the
+	 * ranges of this container, those are kept and returned instead.
+	 *
+	 * @throws EnumerationBudget.ExceededException if the enumeration is already over the budget,
+	 *                                             so a stopped parallel enumeration stores nothing
+	 */
+	synchronized Vector<WidthHeightRange> storeRanges (Vector<WidthHeightRange> vec, EnumerationBudget.Counter counter) {
+		if (memo != null) {
+			return memo;
+		}
+		counter.check();
+		pruneRanges(vec);
+		if (prunedRangeCount > 0) {
+			log.debug("LayoutContainer with id: " + id + " pruned " + prunedRangeCount + " dominated ranges, " + vec.size() + " left.");
+		}
 		memo = vec;
-
+		SharedRangeMemo.put(getStructureKey(), vec);
 		return vec;
 	}
 
-	public void clearMemoization () {
-		for (Layoutable layoutable : children) {
-			if (layoutable instanceof LayoutContainer) {
-				((LayoutContainer) layoutable).clearMemoization();
-				((LayoutContainer) layoutable).memo = null;
+	/**
+	 * Takes the ranges of a structurally identical subtree from the {@link SharedRangeMemo} as the
+	 * memo of this container, if there are any. Otherwise, if this container already has a range
+	 * store, e.g. one loaded by {@link RangeSnapshot}, the ranges are built from it.
+	 *
+	 * @return the known ranges, or null if this subtree has to be enumerated
+	 */
+	synchronized Vector<WidthHeightRange> useKnownRanges () {
+		if (memo == null) {
+			Vector<WidthHeightRange> shared = SharedRangeMemo.get(getStructureKey());
+			if (shared != null) {
+				prunedRangeCount = 0;
+				memo = shared;
+			} else if (rangeStore != null) {
+				prunedRangeCount = 0;
+				memo = rangeStore.toRanges();
+				SharedRangeMemo.put(getStructureKey(), memo);
 			}
 		}
+		return memo;
+	}
+
+	/**
+	 * Sets the range store of this container, used by {@link RangeSnapshot} when loading. The
+	 * ranges are built from it on the next getRanges call.
+	 */
+	synchronized void useRangeStore (RangeStore store) {
+		rangeStore = store;
+		memo = null;
 	}
 
+	/**
+	 * Builds a key that is equal for two containers exactly when they produce the same ranges: the
+	 * pruning and limit settings and, in order, the keys of all children. Labels and ids are left
+	 * out.
+	 *
+	 * @return the structural key of this subtree
+	 */
 	@Override
-	public boolean layout (int x, int y, int w, int h, WidthHeightRange whr) {
-		if (whr == null || (whr.getMinHeight() > h && whr.getMaxHeight() < h && whr.getMinWidth() > w && whr.getMaxWidth() < w)) {
-			return false;
+	public String getStructureKey () {
+		if (structureKey == null) {
+			// Children first, so the keys of the child containers are cached when they are appended.
+			for (LayoutContainer container : postOrder(this, container -> container.structureKey == null)) {
+				container.buildStructureKey();
+			}
 		}
-		// This is the main method that does the computation of layout
-		setAssignedX(x);
-		setAssignedY(y);
-		setAssignedWidth(w);
-		setAssignedHeight(h);
+		return buildStructureKey();
+	}
 
-		Vector<WidthHeightRange> subRanges = whr.getSubRanges();
-		int[] minWidthValues = new int[subRanges.size()];
-		int[] maxWidthValues = new int[subRanges.size()];
-		int totalMinWidthOfChildren = 0;
-		int totalMaxWidthOfChildren = 0;
-		int[] minHeightValues = new int[subRanges.size()];
-		int[] maxHeightValues = new int[subRanges.size()];
-		int totalMinHeightOfChildren = 0;
-		int totalMaxHeightOfChildren = 0;
-		for (int i = 0; i < subRanges.size(); i++) {
-			minHeightValues[i] = subRanges.get(i).getMinHeight();
-			maxHeightValues[i] = subRanges.get(i).getMaxHeight();
-			totalMinHeightOfChildren += subRanges.get(i).getMinHeight();
-			totalMaxHeightOfChildren += subRanges.get(i).getMaxHeight();
-
-			minWidthValues[i] = subRanges.get(i).getMinWidth();
-			maxWidthValues[i] = subRanges.get(i).getMaxWidth();
-			totalMinWidthOfChildren += subRanges.get(i).getMinWidth();
-			totalMaxWidthOfChildren += subRanges.get(i).getMaxWidth();
-		}
-
-
-		boolean feasible = false;
-		if (whr.getOrientationStrategy() == WidthHeightRangeEnum.HORIZONTAL || whr.getOrientationStrategy() == WidthHeightRangeEnum.VERTICAL) {
-			// Weight strategy by max values
-//			feasible = strategyWeight(x, y, isHorizontal(whr) ? totalMaxWidthOfChildren : totalMaxHeightOfChildren, subRanges, whr.getOrientationStrategy(), w, h, isHorizontal(whr) ? maxWidthValues : maxHeightValues);
-			// Weight strategy by min values
-//			feasible = strategyWeight(x, y, isHorizontal(whr) ? totalMinWidthOfChildren : totalMinHeightOfChildren, subRanges, whr.getOrientationStrategy(), w, h, isHorizontal(whr) ? minWidthValues : minHeightValues);
-
-//			// this stream gets the statistics of the int array so we can find minimum or maximum values of this array.
-//			IntSummaryStatistics statWidth = Arrays.stream(maxWidthValues).summaryStatistics();
-//			IntSummaryStatistics statHeight = Arrays.stream(maxHeightValues).summaryStatistics();
-//			// Max values strategy
-//			feasible = strategyValues(x, y, subRanges, whr.getOrientationStrategy(), (w > statWidth.getMin() ? statWidth.getMin() : w), (h > statHeight.getMin() ? statHeight.getMin() : h), isHorizontal(whr) ? maxWidthValues : maxHeightValues);
-//			// Min values strategy
-//			feasible = strategyValues(x, y, subRanges, whr.getOrientationStrategy(), (w > statWidth.getMin() ? statWidth.getMin() : w), (h > statHeight.getMin() ? statHeight.getMin() : h), isHorizontal(whr) ? minWidthValues : minHeightValues);
-
-			// Balance min
-//			feasible = strategyFair(x, y, subRanges, whr.getOrientationStrategy(), w, h, isHorizontal(whr) ? minWidthValues : minHeightValues);
-			// Balance max
-//			feasible = strategyFair(x, y, subRanges, whr.getOrientationStrategy(), w, h, isHorizontal(whr) ? minWidthValues : minHeightValues, isHorizontal(whr) ? maxWidthValues : maxHeightValues);
-
-			feasible = strategyBalance(x, y, subRanges, whr.getOrientationStrategy(), w, h, isHorizontal(whr) ? minWidthValues : minHeightValues, isHorizontal(whr) ? maxWidthValues : maxHeightValues);
-		} else {
-			log.debug("Shouldn't be here - Probably infeasible layout. ID: " + this.id);
+	private String buildStructureKey () {
+		String key = structureKey;
+		if (key == null) {
+			StringBuilder builder = new StringBuilder(rangePruning ? "P" : "C");
+			if (rangeLimit > 0) {
+				builder.append(rangeLimit);
+			}
+			builder.append("(");
+			for (Layoutable layoutable : children) {
+				builder.append(layoutable.getStructureKey());
+			}
+			key = builder.append(")").toString();
+			structureKey = key;
 		}
-
-		// Just check if the given boundaries match with given width & height.
-		return feasible;
+		return key;
 	}
 
-	private boolean isHorizontal (WidthHeightRange whr) {
-		return WidthHeightRangeEnum.HORIZONTAL.equals(whr.getOrientationStrategy());
+	/**
+	 * Computes the ranges of this subtree on the common fork/join pool, see
+	 * {@link #getRangesParallel(ForkJoinPool)}.
+	 *
+	 * @return All possible layout combinations for this container.
+	 */
+	public Vector<WidthHeightRange> getRangesParallel () {
+		return getRangesParallel(ForkJoinPool.commonPool());
 	}
 
 	/**
-	 * This strategy gives the components values according to values parameter.
+	 * Computes the same ranges as {@link #getRanges()}, but the subtrees of sibling containers,
+	 * the HORIZONTAL and VERTICAL passes and large products of a single pass are all computed as
+	 * separate fork/join tasks. The result is memoized exactly like getRanges does, and the order
+	 * of the ranges does not change.
 	 *
-	 * @param x                   x position of Component/Container
-	 * @param y                   y position of Component/Container
-	 * @param subRanges           sub ranges of given root node
-	 * @param orientationStrategy horizontal or vertical
-	 * @param w                   actual width value
-	 * @param h                   actual height value
-	 * @param values              values to consider while distributing weight ratio
+	 * @param pool the pool that runs the enumeration
+	 * @return All possible layout combinations for this container.
 	 */
-	private boolean strategyValues (int x, int y, Vector<WidthHeightRange> subRanges, WidthHeightRangeEnum orientationStrategy, int w, int h, int[] values) {
-		int cum = 0;
-		return layoutRecursively(x, y, subRanges, orientationStrategy, w, h, cum, values);
+	public Vector<WidthHeightRange> getRangesParallel (ForkJoinPool pool) {
+		if (memo != null) {
+			return memo;
+		}
+		try {
+			return pool.invoke(new ParallelRangeEnumerator.ContainerTask(this, budgetCounter()));
+		} catch (EnumerationBudget.ExceededException e) {
+			log.warn("LayoutContainer with id: " + id + ": " + e.getMessage() + ". Switching to heuristic enumeration.");
+			useHeuristicMode();
+			return pool.invoke(new ParallelRangeEnumerator.ContainerTask(this, EnumerationBudget.Counter.UNLIMITED));
+		}
 	}
 
 	/**
-	 * This method shares remaining values as the minimum of the components.
+	 * Builds the layouts of this container into a {@link RangeStore} from the stores of the
+	 * children. The store holds the same layouts in the same order as {@link #getRanges()}, but in
+	 * primitive arrays, and is memoized separately from the ranges.
 	 *
-	 * @param x
-	 * @param y
-	 * @param subRanges
-	 * @param orientationStrategy
-	 * @param w
-	 * @param h
-	 * @param minValues
-	 * @param capacityValues
+	 * @return the store of all possible layouts of this container
 	 */
-	private boolean strategyFair (int x, int y, Vector<WidthHeightRange> subRanges, WidthHeightRangeEnum orientationStrategy, int w, int h, int[] minValues, int[] capacityValues) {
-		int length = capacityValues.length;
-		int cum = 0;
-		int[] distribution = new int[subRanges.size()];
-		boolean[] removedIndex = new boolean[subRanges.size()];
-		int remaining = WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy) ? w : h;
-		for (int i = 0; i < subRanges.size(); i++) {
-			distribution[i] = minValues[i];
-			remaining -= minValues[i];
-			capacityValues[i] -= minValues[i];
-			length = LayoutContainerUtils.checkDistributionComplete(length, removedIndex, i, capacityValues[i]);
-			if (remaining <= 0) {
-				break;
+	@Override
+	public synchronized RangeStore getRangeStore () {
+		if (rangeStore == null) {
+			try {
+				combineSubtreeStores(budgetCounter());
+			} catch (EnumerationBudget.ExceededException e) {
+				log.warn("LayoutContainer with id: " + id + ": " + e.getMessage() + ". Switching to heuristic enumeration.");
+				useHeuristicMode();
+				combineSubtreeStores(EnumerationBudget.Counter.UNLIMITED);
 			}
 		}
+		return rangeStore;
+	}
 
-		//while it can still be distributed, distribute
-		while (remaining > 0) {
-			// get the smallest number after 0 since 0 means that node is distributed.
-			IntSummaryStatistics stats = Arrays.stream(capacityValues).filter(num -> num > 0).summaryStatistics();
-			// if total remaining over number of children less than minimum value a child can get, distribute this value instead of minimum value
-			if (remaining / length <= stats.getMin()) {
-				// if there is still something left to distribute in this node
-				int remainingOverLength = remaining / length;
-				for (int i = 0; i < subRanges.size(); i++) {
-					if (!removedIndex[i]) {
-						// distribute and subtract the amount from remaining
-						if (remainingOverLength == 0) { // TODO : remaining <= length - add one by one
-							distribution[i] += remaining;
-							remaining = 0;
-							break;
-						} else {
-							remaining = LayoutContainerUtils.distribute(capacityValues, distribution, remaining, remainingOverLength, i);
-							length = LayoutContainerUtils.checkDistributionComplete(length, removedIndex, i, capacityValues[i]);
-						}
-					}
-				}
-			} else {
-				int remainingOverLength = remaining / length;
-				for (int i = 0; i < subRanges.size(); i++) {
-					if (!removedIndex[i]) {
-						// distribute and subtract the amount from remaining
-						if (remainingOverLength == 0) {
-							distribution[i] += remaining;
-							remaining = 0;
-						} else {
-							remaining = LayoutContainerUtils.distribute(capacityValues, distribution, remaining, stats.getMin(), i);
-							length = LayoutContainerUtils.checkDistributionComplete(length, removedIndex, i, capacityValues[i]);
-						}
+	private void combineSubtreeStores (EnumerationBudget.Counter counter) {
+		// Children first, as in getRanges, so building a store never recurses.
+		for (LayoutContainer container : postOrder(this, container -> container.rangeStore == null)) {
+			container.combineRangeStore(counter);
+		}
+	}
+
+	private synchronized void combineRangeStore (EnumerationBudget.Counter counter) {
+		if (rangeStore == null) {
+			RangeStore[] childStores = new RangeStore[children.size()];
+			for (int i = 0; i < children.size(); i++) {
+				childStores[i] = children.get(i).getRangeStore();
+			}
+			rangeStore = RangeStore.combine(childStores, rangePruning, rangeLimit, counter);
+		}
+	}
+
+	/**
+	 * Lists the given container and the containers below it in post-order, so every container
+	 * comes after all containers below it. An explicit stack is used instead of recursion, so deep
+	 * trees cannot overflow the thread stack. Only the containers accepted by the filter are listed,
+	 * and the subtrees below the rejected ones are skipped.
+	 *
+	 * @param root   the root of the subtree
+	 * @param filter decides whether a container and the containers below it are visited
+	 * @return the accepted containers, children before their parent
+	 */
+	static List<LayoutContainer> postOrder (LayoutContainer root, Predicate<LayoutContainer> filter) {
+		List<LayoutContainer> containers = new ArrayList<>();
+		Deque<LayoutContainer> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			LayoutContainer container = stack.pop();
+			if (filter.test(container)) {
+				containers.add(container);
+				for (Layoutable layoutable : container.children) {
+					if (layoutable instanceof LayoutContainer) {
+						stack.push((LayoutContainer) layoutable);
 					}
 				}
 			}
-			if (remaining < 0) {
-				log.error("Remaining can't be negative!");
-				break;
-			}
-			if (length <= 0) {
-//				log.error("All is distributed. Remaining: " + remaining);
-			}
 		}
+		// Every container was added before the ones below it, so the reverse is a post-order.
+		Collections.reverse(containers);
+		return containers;
+	}
+
+	/**
+	 * Returns an index over the ranges of {@link #getRanges()} that finds the feasible layouts for a
+	 * size without scanning all of them. It is built once per enumeration and dropped together with
+	 * the memoized ranges.
+	 *
+	 * @return the index over all possible layouts of this container
+	 */
+	public synchronized RangeIndex getRangeIndex () {
+		Vector<WidthHeightRange> ranges = getRanges();
+		if (rangeIndex == null || rangeIndex.getRanges() != ranges) {
+			rangeIndex = new RangeIndex(ranges);
+		}
+		return rangeIndex;
+	}
 
-		LayoutContainerUtils.checkForDistributionCompletedSuccessfully(removedIndex, id);
+	void pruneRanges (Vector<WidthHeightRange> ranges) {
+		int pruned = pruneAndTrimRanges(ranges);
+		if (pruned > 0) {
+			synchronized (this) {
+				prunedRangeCount += pruned;
+			}
+		}
+	}
 
-		return layoutRecursively(x, y, subRanges, orientationStrategy, w, h, cum, distribution);
+	/**
+	 * Removes the dominated ranges if range pruning is enabled and keeps only the rangeLimit widest
+	 * ones if there is a limit, without counting them in prunedRangeCount.
+	 *
+	 * @return the number of removed ranges
+	 */
+	private int pruneAndTrimRanges (Vector<WidthHeightRange> ranges) {
+		int pruned = 0;
+		if (rangePruning) {
+			pruned += LayoutContainerUtils.pruneDominatedRanges(ranges);
+		}
+		if (rangeLimit > 0) {
+			pruned += LayoutContainerUtils.trimRanges(ranges, rangeLimit);
+		}
+		return pruned;
 	}
 
-	// TODO: private boolean strategyWeighted();
+	/**
+	 * Switches this subtree to a cheaper heuristic mode, which the enumerations do by themselves
+	 * once the ranges they really create go over the {@link EnumerationBudget}: range pruning is
+	 * enabled and, after every combination step, only the {@link EnumerationBudget#getRangeLimit()}
+	 * ranges with the widest envelopes are kept. The heuristic mode may lose layouts, but it keeps
+	 * the memory bounded. The ranges enumerated so far are dropped.
+	 */
+	public void useHeuristicMode () {
+		setRangePruning(true);
+		setRangeLimit(EnumerationBudget.getRangeLimit());
+	}
 
 	/**
-	 * This method acts like a water scale. adds minimum then adds only to least numbers
+	 * Limits the number of ranges kept after every combination step for this container and all
+	 * containers below it, 0 for no limit. The memoized ranges are dropped since they were computed
+	 * with the previous setting.
 	 *
-	 * @param x
-	 * @param y
-	 * @param subRanges
-	 * @param orientationStrategy
-	 * @param w
-	 * @param h
-	 * @param minValues
-	 * @param capacityValues
-	 * @return
+	 * @param rangeLimit the most ranges kept after every step
 	 */
-	private boolean strategyBalance (int x, int y, Vector<WidthHeightRange> subRanges, WidthHeightRangeEnum orientationStrategy, int w, int h, int[] minValues, int[] capacityValues) {
-		int cum = 0;
-		int[] maxValues = new int[subRanges.size()];
-		int[] distribution = new int[subRanges.size()];
-		int remaining = WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy) ? w : h;
-		for (int i = 0; i < subRanges.size(); i++) {
-			maxValues[i] = WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy) ? subRanges.get(i).getMaxWidth() : subRanges.get(i).getMaxHeight();
-			distribution[i] = minValues[i];
-			remaining -= minValues[i];
-			capacityValues[i] -= minValues[i];
-			if (remaining <= 0) {
-				break;
+	public void setRangeLimit (int rangeLimit) {
+		for (LayoutContainer container : postOrder(this, container -> true)) {
+			synchronized (container) {
+				container.rangeLimit = rangeLimit;
+				container.memo = null;
+				container.rangeStore = null;
+				container.structureKey = null;
 			}
 		}
-		// This creates the index array of distribution array and then sorts the distribution
-		// and returns as indexes so that we know the positions of sorted array and keep the original array.
-		ArrayIndexComparator comparator = new ArrayIndexComparator(distribution);
-		Integer[] indexOrder = comparator.createIndexArray();
-		Arrays.sort(indexOrder, comparator);
-
-		//while it can still be distributed, distribute
-		while (remaining > 0) {
-			if (distribution[indexOrder[0]] == maxValues[indexOrder[0]]) {
-				// This slot is full, remove it from indexOrder
-				indexOrder = Arrays.copyOfRange(indexOrder, 1, indexOrder.length);
-			} else {
-				// This slot can still be filled
-				// Increase by 1.
-				// Can we increase more? Maybe, but requires very smart computation
-				distribution[indexOrder[0]] = distribution[indexOrder[0]] + 1;
-				remaining--;
-				int p = 0;
-				int q = 1;
-				// Now we move this item up the list if this is not the smallest
-				// item anymore. This is basically one step of bubble sort
-				// takes O(n) in the worst case. But n is small here.
-				while (q < indexOrder.length && distribution[indexOrder[p]] > distribution[indexOrder[q]]) {
-					// swap indexOrder[p] with indexOrder[q] and increment pointers.
-					int temp = indexOrder[p];
-					indexOrder[p] = indexOrder[q];
-					indexOrder[q] = temp;
-					p = q;
-					q = p + 1;
-				}
+	}
+
+	/**
+	 * Enables or disables range pruning for this container and all containers below it. The
+	 * memoized ranges are dropped since they were computed with the previous setting.
+	 *
+	 * @param rangePruning true to drop dominated ranges while enumerating
+	 */
+	public void setRangePruning (boolean rangePruning) {
+		for (LayoutContainer container : postOrder(this, container -> true)) {
+			synchronized (container) {
+				container.rangePruning = rangePruning;
+				container.memo = null;
+				container.rangeStore = null;
+				container.structureKey = null;
 			}
-			if (indexOrder.length < 1) {
-				log.trace("Layout's constraints exceeds max values for components!");
-				break;
+		}
+	}
+
+	/**
+	 * Drops the memoized ranges of this container and of every container below it, so the next
+	 * getRanges call enumerates the whole subtree again.
+	 */
+	public void clearMemoization () {
+		for (LayoutContainer container : postOrder(this, container -> true)) {
+			synchronized (container) {
+				container.memo = null;
+				container.rangeStore = null;
 			}
-			if (remaining < 0) {
-				log.error("Remaining can't be negative!");
-				break;
+		}
+	}
+
+	/**
+	 * Marks this container and all containers above it as dirty by dropping their memoized ranges.
+	 * The memos of the other containers stay valid, so the next getRanges call only enumerates the
+	 * containers on the path from this one to the root.
+	 */
+	public void invalidate () {
+		for (LayoutContainer container = this; container != null; container = container.parent) {
+			synchronized (container) {
+				container.memo = null;
+				container.rangeStore = null;
+				container.structureKey = null;
 			}
 		}
+		LayoutWalker.invalidateLastLayouts();
+	}
+
+	/**
+	 * @return true if the ranges of this container have to be enumerated again
+	 */
+	public boolean isDirty () {
+		return memo == null;
+	}
+
+	/**
+	 * Lays out this container and everything below it with the given layout. The tree is walked by
+	 * {@link LayoutWalker} with an explicit stack, every container assigning its own bounds with
+	 * {@link #distribute(int, int, int, int, WidthHeightRange, boolean, int, int[], int[], int[])}
+	 * before its children are laid out.
+	 *
+	 * <p>If this container was laid out with the same layout last time, only the axes whose
+	 * position or size changed are computed again, so a resize along one axis costs about half as
+	 * much, and children whose bounds stay the same are skipped altogether.
+	 */
+	@Override
+	public boolean layout (int x, int y, int w, int h, WidthHeightRange whr) {
+		return LayoutWalker.layout(this, x, y, w, h, whr);
+	}
+
+	/**
+	 * Lays out this container and all layoutables below it like
+	 * {@link #layout(int, int, int, int, WidthHeightRange)}, but without changing the tree. Instead,
+	 * the x, y, width and height of every component are written into the given array, 4 values per
+	 * component, in the order of {@link #getLeaves()}. Unlike layout, the walk does not stop at an
+	 * infeasible component, so every rectangle is written unless a container cannot be laid out at
+	 * all.
+	 *
+	 * <p>As the tree is only read, many layouts can be evaluated at the same time, and only the
+	 * chosen one laid out into the tree.
+	 *
+	 * @param rectangles receives the rectangles, at least 4 * {@link #getLeafCount()} long
+	 * @return true if every component got a size within its range
+	 */
+	public boolean layoutInto (int x, int y, int w, int h, WidthHeightRange whr, int[] rectangles) {
+		return LayoutWalker.layoutInto(this, x, y, w, h, whr, rectangles);
+	}
 
-		return layoutRecursively(x, y, subRanges, orientationStrategy, w, h, cum, distribution);
+	/**
+	 * Same as {@link #layoutInto(int, int, int, int, WidthHeightRange, int[])}, for a layout given as
+	 * an index into the RangeStore of this container.
+	 */
+	public boolean layoutInto (int x, int y, int w, int h, RangeStore store, int index, int[] rectangles) {
+		return LayoutWalker.layoutInto(this, x, y, w, h, store, index, rectangles);
 	}
 
-	private boolean layoutRecursively (int x, int y, Vector<WidthHeightRange> subRanges, WidthHeightRangeEnum orientationStrategy, int w, int h, int cum, int[] distribution) {
-		for (int i = 0; i < subRanges.size(); i++) {
-			// Resize the component to fit the window
-			if (WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy)) {
-				if (!children.get(i).layout(x + cum, y, distribution[i], h, subRanges.get(i))) {
-					return false;
+	/**
+	 * @return the components below this container from left to right, the order of the rectangles
+	 * of {@link #layoutInto(int, int, int, int, WidthHeightRange, int[])}
+	 */
+	public List<LayoutComponent> getLeaves () {
+		List<LayoutComponent> leaves = new ArrayList<>();
+		Deque<Layoutable> stack = new ArrayDeque<>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			Layoutable layoutable = stack.pop();
+			if (layoutable instanceof LayoutContainer) {
+				Vector<Layoutable> layoutables = ((LayoutContainer) layoutable).children;
+				for (int i = layoutables.size() - 1; i >= 0; i--) {
+					stack.push(layoutables.get(i));
 				}
 			} else {
-				if (!children.get(i).layout(x, y + cum, w, distribution[i], subRanges.get(i))) {
-					return false;
-				}
+				leaves.add((LayoutComponent) layoutable);
 			}
-			cum += distribution[i];
 		}
-		return true;
+		return leaves;
 	}
 
 	/**
-	 * This strategy weights the components according to the values parameter.
-	 * To distribute according to maxValues give values maxValues array.
-	 * To distribute according to minValues give values minValues array.
-	 *
-	 * @param x                   x position of Component/Container
-	 * @param y                   y position of Component/Container
-	 * @param totalOfChildren     total pixels occupied according to orientationStrategy
-	 * @param subRanges           sub ranges of given root node
-	 * @param orientationStrategy horizontal or vertical
-	 * @param w                   actual width value
-	 * @param h                   actual height value
-	 * @param values              values to consider while distributing weight ratio
-	 */
-	private boolean strategyWeight (int x, int y, int totalOfChildren, Vector<WidthHeightRange> subRanges, WidthHeightRangeEnum orientationStrategy, int w, int h, int[] values) {
-		int cum = 0;
-		// find the width ratio according to max values
-		float ratio = totalOfChildren / (WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy) ? (float) w : (float) h);
-		for (int i = 0; i < subRanges.size(); i++) {
-			// Resize the component to fit the window
-			int value = (int) Math.ceil(values[i] / ratio);
-			if (WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy)) {
-				if (!children.get(i).layout(x + cum, y, value, h, subRanges.get(i))) {
-					return false;
-				}
-			} else {
-				if (!children.get(i).layout(x, y + cum, w, value, subRanges.get(i))) {
-					return false;
+	 * @return the number of components below this container
+	 */
+	public int getLeafCount () {
+		int count = 0;
+		for (LayoutContainer container : postOrder(this, container -> true)) {
+			for (Layoutable layoutable : container.children) {
+				if (!(layoutable instanceof LayoutContainer)) {
+					count++;
 				}
 			}
-			cum += value;
-			// TODO width height tan çıkara çıkara ilerlenebilir. Böylelikle 2-3 pixel artık kalmaz
+		}
+		return count;
+	}
+
+	/**
+	 * Lays out this container alone: assigns its bounds, if assign is set, and splits the width
+	 * (HORIZONTAL) or the height (VERTICAL) among the children with the distribution strategy of
+	 * this container, which the caller then lays out with the sub ranges of whr. If the axis of the
+	 * split is not in axes, the children keep the size they have in the tree. The arrays are buffers
+	 * of the caller with room for all children.
+	 *
+	 * @return false if this container cannot be laid out
+	 */
+	boolean distribute (int x, int y, int w, int h, WidthHeightRange whr, boolean assign, int axes, int[] minValues, int[] maxValues, int[] distribution) {
+		if (whr == null || (whr.getMinHeight() > h && whr.getMaxHeight() < h && whr.getMinWidth() > w && whr.getMaxWidth() < w)) {
+			return false;
+		}
+		// This is the main method that does the computation of layout
+		if (assign) {
+			setAssignedBounds(x, y, w, h);
+		}
+		WidthHeightRangeEnum orientationStrategy = whr.getOrientationStrategy();
+		if (orientationStrategy != WidthHeightRangeEnum.HORIZONTAL && orientationStrategy != WidthHeightRangeEnum.VERTICAL) {
+			log.debug("Shouldn't be here - Probably infeasible layout. ID: " + this.id);
+			return false;
+		}
+		boolean horizontal = WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy);
+		Vector<WidthHeightRange> subRanges = whr.getSubRanges();
+		int childCount = subRanges.size();
+		if (keepChildSizes(horizontal, axes, childCount, distribution)) {
+			return true;
+		}
+		for (int i = 0; i < childCount; i++) {
+			WidthHeightRange subRange = subRanges.get(i);
+			minValues[i] = horizontal ? subRange.getMinWidth() : subRange.getMinHeight();
+			maxValues[i] = horizontal ? subRange.getMaxWidth() : subRange.getMaxHeight();
+		}
+		// The children are laid out by the caller.
+		getEffectiveDistributionStrategy().distribute(minValues, maxValues, childCount, horizontal ? w : h, distribution);
+		return true;
+	}
+
+	@Override
+	public boolean layout (int x, int y, int w, int h, RangeStore store, int index) {
+		return LayoutWalker.layout(this, x, y, w, h, store, index);
+	}
+
+	/**
+	 * Same as
+	 * {@link #distribute(int, int, int, int, WidthHeightRange, boolean, int, int[], int[], int[])},
+	 * for a layout given as an index into a RangeStore.
+	 */
+	boolean distribute (int x, int y, int w, int h, RangeStore store, int index, boolean assign, int axes, int[] minValues, int[] maxValues, int[] distribution) {
+		if (store == null || index < 0 || index >= store.size()) {
+			return false;
+		}
+		if (assign) {
+			setAssignedBounds(x, y, w, h);
+		}
+		WidthHeightRangeEnum orientationStrategy = store.getOrientationStrategy(index);
+		if (orientationStrategy != WidthHeightRangeEnum.HORIZONTAL && orientationStrategy != WidthHeightRangeEnum.VERTICAL) {
+			log.debug("Shouldn't be here - Probably infeasible layout. ID: " + this.id);
+			return false;
+		}
+		boolean horizontal = WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy);
+		int childCount = store.getChildCount();
+		if (keepChildSizes(horizontal, axes, childCount, distribution)) {
+			return true;
+		}
+		for (int i = 0; i < childCount; i++) {
+			RangeStore childStore = store.getChildStore(i);
+			int childIndex = store.getChildIndex(index, i);
+			minValues[i] = horizontal ? childStore.getMinWidth(childIndex) : childStore.getMinHeight(childIndex);
+			maxValues[i] = horizontal ? childStore.getMaxWidth(childIndex) : childStore.getMaxHeight(childIndex);
+		}
+		getEffectiveDistributionStrategy().distribute(minValues, maxValues, childCount, horizontal ? w : h, distribution);
+		return true;
+	}
+
+	/**
+	 * If the axis of the split is not recomputed, fills the distribution with the sizes the children
+	 * already have.
+	 *
+	 * @return true if the children keep their sizes
+	 */
+	private boolean keepChildSizes (boolean horizontal, int axes, int childCount, int[] distribution) {
+		if ((axes & (horizontal ? LayoutWalker.HORIZONTAL_AXIS : LayoutWalker.VERTICAL_AXIS)) != 0) {
+			return false;
+		}
+		for (int i = 0; i < childCount; i++) {
+			Layoutable child = children.get(i);
+			distribution[i] = horizontal ? child.getAssignedWidth() : child.getAssignedHeight();
 		}
 		return true;
 	}
 
+	private void setAssignedBounds (int x, int y, int w, int h) {
+		assignedX = x;
+		assignedY = y;
+		assignedWidth = w;
+		assignedHeight = h;
+	}
+
+	@Override
+	public void setAssignedX (int x) {
+		if (assignedX != x) {
+			assignedX = x;
+			invalidateBounds();
+		}
+	}
+
+	@Override
+	public void setAssignedY (int y) {
+		if (assignedY != y) {
+			assignedY = y;
+			invalidateBounds();
+		}
+	}
+
+	@Override
+	public void setAssignedWidth (int w) {
+		if (assignedWidth != w) {
+			assignedWidth = w;
+			invalidateBounds();
+		}
+	}
+
+	@Override
+	public void setAssignedHeight (int h) {
+		if (assignedHeight != h) {
+			assignedHeight = h;
+			invalidateBounds();
+		}
+	}
+
+	/**
+	 * The last layouts of the containers above this one rely on the bounds it got from
+	 * {@link LayoutWalker}, so they are forgotten when the bounds are set in any other way. The last
+	 * layout of this container only relies on the bounds below it, so a root can be resized and
+	 * still be laid out again incrementally.
+	 */
+	private void invalidateBounds () {
+		if (parent != null) {
+			LayoutWalker.invalidateLastLayouts();
+		}
+	}
+
+	public void setDistributionStrategy (DistributionStrategy distributionStrategy) {
+		this.distributionStrategy = distributionStrategy;
+		LayoutWalker.invalidateLastLayouts();
+	}
+
+	/**
+	 * @return the distribution strategy of this container, or the default one if it has none
+	 */
+	public DistributionStrategy getEffectiveDistributionStrategy () {
+		DistributionStrategy strategy = distributionStrategy;
+		return strategy != null ? strategy : defaultDistributionStrategy;
+	}
+
+	/**
+	 * @return the distribution strategy of the containers that do not have one of their own
+	 */
+	public static DistributionStrategy getDefaultDistributionStrategy () {
+		return defaultDistributionStrategy;
+	}
+
+	public static void setDefaultDistributionStrategy (DistributionStrategy defaultDistributionStrategy) {
+		LayoutContainer.defaultDistributionStrategy = defaultDistributionStrategy;
+		LayoutWalker.invalidateLastLayouts();
+	}
+
 	public void addComponent (Layoutable... comp) {
+		for (Layoutable layoutable : comp) {
+			attach(layoutable);
+		}
 		children.addAll(Arrays.asList(comp));
+		invalidate();
+	}
+
+	/**
+	 * Removes the given child and invalidates the ranges on the path to the root.
+	 *
+	 * @param comp the child to remove
+	 * @return true if comp was a child of this container
+	 */
+	public boolean removeComponent (Layoutable comp) {
+		if (!children.remove(comp)) {
+			return false;
+		}
+		detach(comp);
+		invalidate();
+		return true;
+	}
+
+	/**
+	 * Puts newComp in the place of oldComp and invalidates the ranges on the path to the root.
+	 *
+	 * @param oldComp the child to replace
+	 * @param newComp the new child
+	 * @return true if oldComp was a child of this container
+	 */
+	public boolean replaceComponent (Layoutable oldComp, Layoutable newComp) {
+		int index = children.indexOf(oldComp);
+		if (index < 0) {
+			return false;
+		}
+		detach(oldComp);
+		attach(newComp);
+		children.set(index, newComp);
+		invalidate();
+		return true;
+	}
+
+	private void attach (Layoutable layoutable) {
+		if (layoutable instanceof LayoutContainer) {
+			LayoutContainer container = (LayoutContainer) layoutable;
+			if (container.parent != null && container.parent != this) {
+				container.parent.removeComponent(container);
+			}
+			container.parent = this;
+		}
+	}
+
+	private void detach (Layoutable layoutable) {
+		if (layoutable instanceof LayoutContainer && ((LayoutContainer) layoutable).parent == this) {
+			((LayoutContainer) layoutable).parent = null;
+		}
 	}
 
 	public LayoutComponent findComponent (String label) {
@@ -0,0 +1,310 @@
+package com.prototype.smartlayout.model;
+
+import com.prototype.smartlayout.model.enums.WidthHeightRangeEnum;
+import java.util.Arrays;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-order engine behind {@link LayoutContainer#layout}. Instead of every container laying out its
+ * children through a recursive call, the pending children are kept on an explicit stack, so the
+ * depth of the tree is not limited by the thread stack size.
+ *
+ * <p>The children of a container are pushed in reverse order, so they are popped, and laid out, in
+ * exactly the order of the recursive version. As there, the walk stops at the first layoutable
+ * that cannot be laid out, and the ones after it keep their previous values.
+ *
+ * <p>Instead of assigning the bounds in the tree, the walk can also write the rectangles of the
+ * components into a buffer, see {@link LayoutContainer#layoutInto(int, int, int, int,
+ * WidthHeightRange, int[])}. The tree is only read then, so any number of threads can do it at
+ * the same time.
+ *
+ * <p>The position and size of every layoutable along one axis only depend on the layout and on
+ * the position and size of the root along the same axis: a HORIZONTAL container splits its width
+ * and passes its height on, a VERTICAL one the other way around. So when a container is laid out
+ * again with the same layout, the walk only recomputes the axes whose input changed, and takes
+ * the other one from the bounds already in the tree, see {@link LastLayout}. A child whose bounds
+ * stay the same is skipped with everything below it.
+ *
+ * <p>The walk is the only one that assigns bounds without forgetting the last layouts: the setters
+ * of the layoutables and {@link LayoutComponent#layout} forget them whenever they change bounds
+ * the last layouts may rely on.
+ *
+ * <p>The stack is a set of parallel arrays that every thread reuses between calls, and so are the
+ * arrays the containers split their size in, see {@link DistributionStrategy}.
+ */
+final class LayoutWalker {
+	// The x and width of the layoutables
+	static final int HORIZONTAL_AXIS = 1;
+	// The y and height of the layoutables
+	static final int VERTICAL_AXIS = 2;
+	static final int BOTH_AXES = HORIZONTAL_AXIS | VERTICAL_AXIS;
+
+	private static final ThreadLocal<LayoutWalker> WALKERS = ThreadLocal.withInitial(LayoutWalker::new);
+	// Increased on every change of the bounds in any tree, see LastLayout
+	private static final AtomicLong STAMP = new AtomicLong();
+
+	private int size = 0;
+	private Layoutable[] nodes = new Layoutable[16];
+	private int[] xs = new int[16];
+	private int[] ys = new int[16];
+	private int[] widths = new int[16];
+	private int[] heights = new int[16];
+	// Either the range of the frame, or its store and index in it
+	private WidthHeightRange[] ranges = new WidthHeightRange[16];
+	private RangeStore[] stores = new RangeStore[16];
+	private int[] indices = new int[16];
+	// The min and max values and the distribution of the container being laid out
+	private int[] minValues = new int[16];
+	private int[] maxValues = new int[16];
+	private int[] distribution = new int[16];
+	// When not null, the rectangles of the components are written here instead of into the tree
+	private int[] rectangles = null;
+	private int leafIndex = 0;
+	private boolean feasible = true;
+	// The axes that are recomputed, and whether unchanged children are skipped
+	private int axes = BOTH_AXES;
+	private boolean skipUnchanged = false;
+
+	private LayoutWalker () {
+	}
+
+	static boolean layout (LayoutContainer root, int x, int y, int w, int h, WidthHeightRange whr) {
+		return layout(root, x, y, w, h, whr, null, 0);
+	}
+
+	static boolean layoutInto (LayoutContainer root, int x, int y, int w, int h, WidthHeightRange whr, int[] rectangles) {
+		LayoutWalker walker = walker();
+		walker.rectangles = rectangles;
+		try {
+			return walker.walk(root, x, y, w, h, whr, null, 0);
+		} finally {
+			walker.clear();
+		}
+	}
+
+	static boolean layout (LayoutContainer root, int x, int y, int w, int h, RangeStore store, int index) {
+		return layout(root, x, y, w, h, null, store, index);
+	}
+
+	private static boolean layout (LayoutContainer root, int x, int y, int w, int h, WidthHeightRange whr, RangeStore store, int index) {
+		LastLayout last = root.getLastLayout();
+		boolean sameLayout = last.isSameLayout(whr, store, index);
+		int changedAxes = sameLayout ? last.getChangedAxes(x, y, w, h) : BOTH_AXES;
+		if (changedAxes == 0 && root.getAssignedX() == x && root.getAssignedY() == y && root.getAssignedWidth() == w && root.getAssignedHeight() == h) {
+			// Laying out again would assign the same bounds and stop at the same layoutable.
+			return last.feasible;
+		}
+		LayoutWalker walker = walker();
+		// The axis that is not recomputed is taken from the tree, so it has to be complete there.
+		if (changedAxes != BOTH_AXES && last.isComplete(BOTH_AXES ^ changedAxes)) {
+			walker.axes = changedAxes;
+		}
+		walker.skipUnchanged = sameLayout && last.isComplete(BOTH_AXES);
+		try {
+			boolean feasible = walker.walk(root, x, y, w, h, whr, store, index);
+			last.update(whr, store, index, x, y, w, h, walker.axes, feasible);
+			return feasible;
+		} finally {
+			walker.clear();
+		}
+	}
+
+	/**
+	 * Forgets the last layouts of all containers, so the next layout recomputes everything. Needed
+	 * when something other than the bounds changes the layout, like the tree or a distribution
+	 * strategy.
+	 */
+	static void invalidateLastLayouts () {
+		STAMP.incrementAndGet();
+	}
+
+	static boolean layoutInto (LayoutContainer root, int x, int y, int w, int h, RangeStore store, int index, int[] rectangles) {
+		LayoutWalker walker = walker();
+		walker.rectangles = rectangles;
+		try {
+			return walker.walk(root, x, y, w, h, null, store, index);
+		} finally {
+			walker.clear();
+		}
+	}
+
+	private static LayoutWalker walker () {
+		LayoutWalker walker = WALKERS.get();
+		// A layout started while another one on this thread is running gets a stack of its own.
+		return walker.size > 0 ? new LayoutWalker() : walker;
+	}
+
+	private boolean walk (LayoutContainer root, int x, int y, int w, int h, WidthHeightRange whr, RangeStore store, int index) {
+		push(root, x, y, w, h, whr, store, index);
+		while (size > 0) {
+			size--;
+			Layoutable node = nodes[size];
+			x = xs[size];
+			y = ys[size];
+			w = widths[size];
+			h = heights[size];
+			whr = ranges[size];
+			store = stores[size];
+			index = indices[size];
+			if (!(node instanceof LayoutContainer)) {
+				if (rectangles != null) {
+					writeRectangle(x, y, w, h);
+					// The rectangles of the components after an infeasible one are still needed.
+					feasible &= store == null ? isFeasible(w, h, whr) : store.isFeasible(index, w, h);
+				} else if (node instanceof LayoutComponent) {
+					// Assigned directly, since LayoutComponent.layout would forget the last layouts.
+					if (!((LayoutComponent) node).assign(x, y, w, h, store == null ? isFeasible(w, h, whr) : store.isFeasible(index, w, h))) {
+						return false;
+					}
+				} else if (!(store == null ? node.layout(x, y, w, h, whr) : node.layout(x, y, w, h, store, index))) {
+					return false;
+				}
+				continue;
+			}
+			LayoutContainer container = (LayoutContainer) node;
+			int childCount = container.getChildren().size();
+			if (distribution.length < childCount) {
+				minValues = new int[childCount];
+				maxValues = new int[childCount];
+				distribution = new int[childCount];
+			}
+			boolean distributed = store == null
+					? container.distribute(x, y, w, h, whr, rectangles == null, axes, minValues, maxValues, distribution)
+					: container.distribute(x, y, w, h, store, index, rectangles == null, axes, minValues, maxValues, distribution);
+			if (!distributed) {
+				return false;
+			}
+			Vector<WidthHeightRange> subRanges = store == null ? whr.getSubRanges() : null;
+			boolean horizontal = WidthHeightRangeEnum.HORIZONTAL.equals(store == null ? whr.getOrientationStrategy() : store.getOrientationStrategy(index));
+			// The offset of a child is the sum of the distribution of the children before it. All
+			// children are pushed before the next container overwrites the distribution.
+			int cum = 0;
+			for (int i = 0; i < childCount; i++) {
+				cum += distribution[i];
+			}
+			for (int i = childCount - 1; i >= 0; i--) {
+				cum -= distribution[i];
+				Layoutable child = container.getChildren().get(i);
+				int childX = horizontal ? x + cum : x;
+				int childY = horizontal ? y : y + cum;
+				int childW = horizontal ? distribution[i] : w;
+				int childH = horizontal ? h : distribution[i];
+				if (skipUnchanged && child.getAssignedX() == childX && child.getAssignedY() == childY && child.getAssignedWidth() == childW && child.getAssignedHeight() == childH) {
+					// Laid out with the same layout and bounds before, and all of it was feasible.
+					continue;
+				}
+				if (store == null) {
+					push(child, childX, childY, childW, childH, subRanges.get(i), null, 0);
+				} else {
+					push(child, childX, childY, childW, childH, null, store.getChildStore(i), store.getChildIndex(index, i));
+				}
+			}
+		}
+		return feasible;
+	}
+
+	private void writeRectangle (int x, int y, int w, int h) {
+		int offset = 4 * leafIndex++;
+		rectangles[offset] = x;
+		rectangles[offset + 1] = y;
+		rectangles[offset + 2] = w;
+		rectangles[offset + 3] = h;
+	}
+
+	/**
+	 * Same check as {@link LayoutComponent#layout(int, int, int, int, WidthHeightRange)}.
+	 */
+	private static boolean isFeasible (int w, int h, WidthHeightRange whr) {
+		return w >= whr.getMinWidth() && w <= whr.getMaxWidth() && h >= whr.getMinHeight() && h <= whr.getMaxHeight();
+	}
+
+	private void push (Layoutable node, int x, int y, int w, int h, WidthHeightRange whr, RangeStore store, int index) {
+		if (size == nodes.length) {
+			int capacity = size * 2;
+			nodes = Arrays.copyOf(nodes, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			widths = Arrays.copyOf(widths, capacity);
+			heights = Arrays.copyOf(heights, capacity);
+			ranges = Arrays.copyOf(ranges, capacity);
+			stores = Arrays.copyOf(stores, capacity);
+			indices = Arrays.copyOf(indices, capacity);
+		}
+		nodes[size] = node;
+		xs[size] = x;
+		ys[size] = y;
+		widths[size] = w;
+		heights[size] = h;
+		ranges[size] = whr;
+		stores[size] = store;
+		indices[size] = index;
+		size++;
+	}
+
+	/**
+	 * Drops the references left on the stack, also when the walk stopped early.
+	 */
+	private void clear () {
+		Arrays.fill(nodes, null);
+		Arrays.fill(ranges, null);
+		Arrays.fill(stores, null);
+		size = 0;
+		rectangles = null;
+		leafIndex = 0;
+		feasible = true;
+		axes = BOTH_AXES;
+		skipUnchanged = false;
+	}
+
+	/**
+	 * The last layout of a container and the bounds it was laid out with. The bounds in the tree
+	 * are only known to belong to it while no other layout or setter, in any tree, changed bounds
+	 * since, and along an axis only if the last walk that recomputed the axis was not stopped by an
+	 * infeasible layoutable.
+	 */
+	static final class LastLayout {
+		private long stamp = -1;
+		private WidthHeightRange range;
+		private RangeStore store;
+		private int index;
+		private int x;
+		private int y;
+		private int w;
+		private int h;
+		private boolean horizontalComplete;
+		private boolean verticalComplete;
+		private boolean feasible;
+
+		private boolean isSameLayout (WidthHeightRange range, RangeStore store, int index) {
+			return stamp == STAMP.get() && this.range == range && this.store == store && this.index == index;
+		}
+
+		private int getChangedAxes (int x, int y, int w, int h) {
+			return (x != this.x || w != this.w ? HORIZONTAL_AXIS : 0) | (y != this.y || h != this.h ? VERTICAL_AXIS : 0);
+		}
+
+		private boolean isComplete (int axes) {
+			return ((axes & HORIZONTAL_AXIS) == 0 || horizontalComplete) && ((axes & VERTICAL_AXIS) == 0 || verticalComplete);
+		}
+
+		private void update (WidthHeightRange range, RangeStore store, int index, int x, int y, int w, int h, int axes, boolean feasible) {
+			this.range = range;
+			this.store = store;
+			this.index = index;
+			this.x = x;
+			this.y = y;
+			this.w = w;
+			this.h = h;
+			// The walk stops at the first infeasible layoutable, so the ones after it are not updated.
+			if ((axes & HORIZONTAL_AXIS) != 0) {
+				horizontalComplete = feasible;
+			}
+			if ((axes & VERTICAL_AXIS) != 0) {
+				verticalComplete = feasible;
+			}
+			this.feasible = feasible;
+			stamp = STAMP.incrementAndGet();
+		}
+	}
+}
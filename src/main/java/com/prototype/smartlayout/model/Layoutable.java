@@ -79,4 +79,45 @@ public interface Layoutable {
 	boolean layout (int x, int y, int w, int h, WidthHeightRange r);
 
 	Vector<WidthHeightRange> getRanges ();
+
+	/**
+	 * Returns the layouts of this layoutable whose min width and min height are not larger than the
+	 * given size. Layouts that are left out can not be used when this layoutable, or a container
+	 * above it, is laid out within that size. The max values are not checked, since a child may
+	 * get less than the whole size.
+	 *
+	 * @param width  The available width.
+	 * @param height The available height.
+	 * @return The layouts that can fit into the given size.
+	 */
+	Vector<WidthHeightRange> getRanges (int width, int height);
+
+	/**
+	 * Same as {@link #layout(int, int, int, int, WidthHeightRange)}, but the layout is given as an
+	 * index into the RangeStore of this layoutable instead of a WidthHeightRange object.
+	 *
+	 * @param x     The x-coordinate of the top-left corner of this layoutable object.
+	 * @param y     The y-coordinate of the top-left corner of this layoutable object.
+	 * @param w     The width of this layoutable object.
+	 * @param h     The height of this layoutable object.
+	 * @param store The store returned by {@link #getRangeStore()}.
+	 * @param index The index of the layout in the store.
+	 */
+	boolean layout (int x, int y, int w, int h, RangeStore store, int index);
+
+	/**
+	 * Returns all possible layouts of this layoutable in primitive arrays, in the same order as
+	 * {@link #getRanges()}.
+	 *
+	 * @return the memoized store of all layouts
+	 */
+	RangeStore getRangeStore ();
+
+	/**
+	 * Returns a key that describes the structure of this subtree. Two layoutables with the same key
+	 * have the same ranges, which lets {@link SharedRangeMemo} share them.
+	 *
+	 * @return the structural key of this layoutable
+	 */
+	String getStructureKey ();
 }
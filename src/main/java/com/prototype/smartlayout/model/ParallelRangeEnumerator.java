@@ -0,0 +1,146 @@
+package com.prototype.smartlayout.model;
+
+import com.prototype.smartlayout.model.enums.WidthHeightRangeEnum;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join tasks behind {@link LayoutContainer#getRangesParallel()}. The work is split on three
+ * levels:
+ *
+ * <ul>
+ * <li>Child containers whose ranges are not memoized yet are enumerated as separate tasks
+ * <li>The HORIZONTAL and VERTICAL passes of a container run as two tasks
+ * <li>Inside a pass, the product of movingRanges with the ranges of the next child is split
+ * into chunks of movingRanges once it is large enough
+ * </ul>
+ *
+ * <p>All results are joined in order, so the ranges come out exactly as getRanges builds them.
+ */
+final class ParallelRangeEnumerator {
+	// Below this many combinations a product is computed on the current thread.
+	private static final int PRODUCT_THRESHOLD = 4096;
+
+	private ParallelRangeEnumerator () {
+	}
+
+	static class ContainerTask extends RecursiveTask<Vector<WidthHeightRange>> {
+		private static final long serialVersionUID = -5163617335532947712L;
+		private final transient LayoutContainer container;
+		private final transient EnumerationBudget.Counter counter;
+
+		ContainerTask (LayoutContainer container, EnumerationBudget.Counter counter) {
+			this.container = container;
+			this.counter = counter;
+		}
+
+		@Override
+		protected Vector<WidthHeightRange> compute () {
+			Vector<WidthHeightRange> memo = container.useKnownRanges();
+			if (memo != null) {
+				return memo;
+			}
+
+			List<ContainerTask> childTasks = new ArrayList<>();
+			for (Layoutable layoutable : container.getChildren()) {
+				if (layoutable instanceof LayoutContainer && ((LayoutContainer) layoutable).getMemo() == null) {
+					childTasks.add(new ContainerTask((LayoutContainer) layoutable, counter));
+				}
+			}
+			ForkJoinTask.invokeAll(childTasks);
+
+			List<Vector<WidthHeightRange>> childRanges = new ArrayList<>(container.getChildren().size());
+			for (Layoutable layoutable : container.getChildren()) {
+				// Every child container is memoized by now, so this does not recurse.
+				childRanges.add(layoutable.getRanges());
+			}
+			synchronized (container) {
+				container.setPrunedRangeCount(0);
+			}
+
+			PassTask horizontal = new PassTask(container, WidthHeightRangeEnum.HORIZONTAL, childRanges, counter);
+			if (!container.hasDistinctOrientations()) {
+				return container.storeRanges(horizontal.compute(), counter);
+			}
+			PassTask vertical = new PassTask(container, WidthHeightRangeEnum.VERTICAL, childRanges, counter);
+			horizontal.fork();
+			Vector<WidthHeightRange> verticalRanges = vertical.compute();
+			Vector<WidthHeightRange> vec = horizontal.join();
+			vec.addAll(verticalRanges);
+			return container.storeRanges(vec, counter);
+		}
+	}
+
+	/**
+	 * Same steps as {@link LayoutContainer#combineRanges}, with the products split into subtasks.
+	 */
+	static class PassTask extends RecursiveTask<Vector<WidthHeightRange>> {
+		private static final long serialVersionUID = 2468190317468125521L;
+		private final transient LayoutContainer container;
+		private final WidthHeightRangeEnum orientationStrategy;
+		private final transient List<Vector<WidthHeightRange>> childRanges;
+		private final transient EnumerationBudget.Counter counter;
+
+		PassTask (LayoutContainer container, WidthHeightRangeEnum orientationStrategy, List<Vector<WidthHeightRange>> childRanges, EnumerationBudget.Counter counter) {
+			this.container = container;
+			this.orientationStrategy = orientationStrategy;
+			this.childRanges = childRanges;
+			this.counter = counter;
+		}
+
+		@Override
+		protected Vector<WidthHeightRange> compute () {
+			Vector<WidthHeightRange> movingRanges = new Vector<>();
+			for (int i = 0; i < childRanges.size(); i++) {
+				Vector<WidthHeightRange> compVec = childRanges.get(i);
+				if (i == 0) {
+					movingRanges = LayoutContainer.wrapRanges(orientationStrategy, compVec);
+					counter.add(movingRanges.size());
+				} else {
+					movingRanges = new ProductTask(orientationStrategy, movingRanges, 0, movingRanges.size(), compVec, counter).compute();
+				}
+				container.pruneRanges(movingRanges);
+				if (movingRanges.isEmpty()) {
+					break;
+				}
+			}
+			return movingRanges;
+		}
+	}
+
+	static class ProductTask extends RecursiveTask<Vector<WidthHeightRange>> {
+		private static final long serialVersionUID = -3127587414735786470L;
+		private final WidthHeightRangeEnum orientationStrategy;
+		private final transient List<WidthHeightRange> movingRanges;
+		private final int from;
+		private final int to;
+		private final transient Vector<WidthHeightRange> compVec;
+		private final transient EnumerationBudget.Counter counter;
+
+		ProductTask (WidthHeightRangeEnum orientationStrategy, List<WidthHeightRange> movingRanges, int from, int to, Vector<WidthHeightRange> compVec, EnumerationBudget.Counter counter) {
+			this.orientationStrategy = orientationStrategy;
+			this.movingRanges = movingRanges;
+			this.from = from;
+			this.to = to;
+			this.compVec = compVec;
+			this.counter = counter;
+		}
+
+		@Override
+		protected Vector<WidthHeightRange> compute () {
+			if (to - from < 2 || (long) (to - from) * compVec.size() <= PRODUCT_THRESHOLD) {
+				return LayoutContainer.multiplyRanges(orientationStrategy, movingRanges, from, to, compVec, counter);
+			}
+			int middle = (from + to) >>> 1;
+			ProductTask left = new ProductTask(orientationStrategy, movingRanges, from, middle, compVec, counter);
+			ProductTask right = new ProductTask(orientationStrategy, movingRanges, middle, to, compVec, counter);
+			right.fork();
+			Vector<WidthHeightRange> result = left.compute();
+			result.addAll(right.join());
+			return result;
+		}
+	}
+}
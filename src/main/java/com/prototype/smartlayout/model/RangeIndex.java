@@ -0,0 +1,274 @@
+package com.prototype.smartlayout.model;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * Index over the [minWidth, maxWidth] x [minHeight, maxHeight] rectangles of a list of ranges that
+ * finds all ranges containing a given (width, height) point, which are exactly the layouts that
+ * are feasible for that size.
+ *
+ * <p>The width axis is a segment tree: every range is stored in the O(log n) nodes whose width
+ * segments together make up its width interval. Inside a node the ranges are kept in a centered
+ * interval tree on the height axis. A query walks from the root to the leaf segment holding the
+ * width and asks the height tree of every node on the way, so it takes O(log^2 n) plus the number
+ * of feasible ranges. A range is stored in at most one node on any such path, so nothing is found
+ * twice.
+ */
+public class RangeIndex {
+	private final Vector<WidthHeightRange> ranges;
+	// Sorted distinct width coordinates, leaf i covers the widths [bounds[i], bounds[i + 1])
+	private final int[] bounds;
+	private final HeightTree[] nodes;
+	private final int leafCount;
+
+	public RangeIndex (Vector<WidthHeightRange> ranges) {
+		this.ranges = ranges;
+		int[] coordinates = new int[ranges.size() * 2];
+		for (int i = 0; i < ranges.size(); i++) {
+			coordinates[2 * i] = ranges.get(i).getMinWidth();
+			// Ranges are inclusive, segments are half open.
+			coordinates[2 * i + 1] = ranges.get(i).getMaxWidth() + 1;
+		}
+		Arrays.sort(coordinates);
+		int count = 0;
+		for (int i = 0; i < coordinates.length; i++) {
+			if (i == 0 || coordinates[i] != coordinates[i - 1]) {
+				coordinates[count++] = coordinates[i];
+			}
+		}
+		bounds = Arrays.copyOf(coordinates, count);
+		leafCount = Math.max(count - 1, 1);
+
+		// First count the ranges of every node, then fill them in, so no boxed lists are needed.
+		int[] nodeSizes = new int[4 * leafCount];
+		int[][] nodeRanges = new int[4 * leafCount][];
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < ranges.size(); i++) {
+				WidthHeightRange whr = ranges.get(i);
+				if (whr.getMaxWidth() < whr.getMinWidth() || whr.getMaxHeight() < whr.getMinHeight()) {
+					continue;
+				}
+				int from = Arrays.binarySearch(bounds, whr.getMinWidth());
+				int to = Arrays.binarySearch(bounds, whr.getMaxWidth() + 1);
+				insert(nodeSizes, pass == 0 ? null : nodeRanges, 1, 0, leafCount, from, to, i);
+			}
+			if (pass == 0) {
+				for (int node = 0; node < nodeSizes.length; node++) {
+					if (nodeSizes[node] > 0) {
+						nodeRanges[node] = new int[nodeSizes[node]];
+						nodeSizes[node] = 0;
+					}
+				}
+			}
+		}
+		int[] minHeights = new int[ranges.size()];
+		int[] maxHeights = new int[ranges.size()];
+		for (int i = 0; i < ranges.size(); i++) {
+			minHeights[i] = ranges.get(i).getMinHeight();
+			maxHeights[i] = ranges.get(i).getMaxHeight();
+		}
+		nodes = new HeightTree[nodeRanges.length];
+		for (int node = 0; node < nodeRanges.length; node++) {
+			if (nodeRanges[node] != null) {
+				nodes[node] = new HeightTree(minHeights, maxHeights, nodeRanges[node]);
+			}
+		}
+	}
+
+	/**
+	 * Visits every node covering a part of the leaves [from, to) that is not covered by its parent
+	 * already. Without nodeRanges the nodes are only counted, otherwise index is stored in them.
+	 */
+	private static void insert (int[] nodeSizes, int[][] nodeRanges, int node, int nodeFrom, int nodeTo, int from, int to, int index) {
+		if (to <= nodeFrom || nodeTo <= from) {
+			return;
+		}
+		if (from <= nodeFrom && nodeTo <= to) {
+			if (nodeRanges != null) {
+				nodeRanges[node][nodeSizes[node]] = index;
+			}
+			nodeSizes[node]++;
+			return;
+		}
+		int middle = (nodeFrom + nodeTo) >>> 1;
+		insert(nodeSizes, nodeRanges, 2 * node, nodeFrom, middle, from, to, index);
+		insert(nodeSizes, nodeRanges, 2 * node + 1, middle, nodeTo, from, to, index);
+	}
+
+	/**
+	 * Sorts the indexes by the given keys with a single primitive sort. Packing key and index into a
+	 * long keeps equal keys in index order.
+	 */
+	private static int[] sortByKey (int[] indices, int[] keys) {
+		long[] packed = new long[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			packed[i] = ((long) keys[i] << 32) | (indices[i] & 0xFFFFFFFFL);
+		}
+		Arrays.sort(packed);
+		int[] sorted = new int[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			sorted[i] = (int) packed[i];
+		}
+		return sorted;
+	}
+
+	/**
+	 * @return the ranges this index was built for
+	 */
+	public Vector<WidthHeightRange> getRanges () {
+		return ranges;
+	}
+
+	/**
+	 * Finds the indexes of all ranges that contain the given size.
+	 *
+	 * @param w the width
+	 * @param h the height
+	 * @return the indexes in ascending order, so in the order of the ranges
+	 */
+	public int[] findFeasibleIndices (int w, int h) {
+		if (bounds.length < 2 || w < bounds[0] || w >= bounds[bounds.length - 1]) {
+			return new int[0];
+		}
+		// The leaf whose segment holds w
+		int leaf = Arrays.binarySearch(bounds, w);
+		if (leaf < 0) {
+			leaf = -leaf - 2;
+		}
+		int[] result = new int[16];
+		int count = 0;
+		int node = 1;
+		int nodeFrom = 0;
+		int nodeTo = leafCount;
+		while (true) {
+			if (nodes[node] != null) {
+				if (result.length - count < nodes[node].size()) {
+					result = Arrays.copyOf(result, Math.max(result.length * 2, count + nodes[node].size()));
+				}
+				count = nodes[node].find(h, result, count);
+			}
+			if (nodeTo - nodeFrom <= 1) {
+				break;
+			}
+			int middle = (nodeFrom + nodeTo) >>> 1;
+			if (leaf < middle) {
+				node = 2 * node;
+				nodeTo = middle;
+			} else {
+				node = 2 * node + 1;
+				nodeFrom = middle;
+			}
+		}
+		result = Arrays.copyOf(result, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Same as {@link #findFeasibleIndices(int, int)}, but returns the ranges themselves.
+	 */
+	public Vector<WidthHeightRange> findFeasibleRanges (int w, int h) {
+		int[] indices = findFeasibleIndices(w, h);
+		Vector<WidthHeightRange> vec = new Vector<>(indices.length);
+		for (int index : indices) {
+			vec.add(ranges.get(index));
+		}
+		return vec;
+	}
+
+	/**
+	 * Centered interval tree over the height intervals of a set of ranges.
+	 */
+	private static class HeightTree {
+		private final int size;
+		private final int center;
+		// Ranges whose height interval contains center, sorted by min height ascending and by max
+		// height descending, with the matching values next to them.
+		private final int[] byMin;
+		private final int[] minValues;
+		private final int[] byMax;
+		private final int[] maxValues;
+		private final HeightTree left;
+		private final HeightTree right;
+
+		HeightTree (int[] minHeights, int[] maxHeights, int[] indices) {
+			size = indices.length;
+			// The middle of the covered heights, so the depth is bounded by the log of the pixel range.
+			int lowest = Integer.MAX_VALUE;
+			int highest = Integer.MIN_VALUE;
+			for (int index : indices) {
+				lowest = Math.min(lowest, minHeights[index]);
+				highest = Math.max(highest, maxHeights[index]);
+			}
+			center = (int) (((long) lowest + highest) / 2);
+
+			int[] leftIndices = new int[indices.length];
+			int[] rightIndices = new int[indices.length];
+			int[] centerIndices = new int[indices.length];
+			int leftCount = 0;
+			int rightCount = 0;
+			int centerCount = 0;
+			for (int index : indices) {
+				if (maxHeights[index] < center) {
+					leftIndices[leftCount++] = index;
+				} else if (minHeights[index] > center) {
+					rightIndices[rightCount++] = index;
+				} else {
+					centerIndices[centerCount++] = index;
+				}
+			}
+			centerIndices = Arrays.copyOf(centerIndices, centerCount);
+			int[] keys = new int[centerCount];
+			for (int i = 0; i < centerCount; i++) {
+				keys[i] = minHeights[centerIndices[i]];
+			}
+			byMin = sortByKey(centerIndices, keys);
+			minValues = new int[centerCount];
+			for (int i = 0; i < centerCount; i++) {
+				minValues[i] = minHeights[byMin[i]];
+				// Negated, so the ascending sort puts the largest max height first
+				keys[i] = -maxHeights[centerIndices[i]];
+			}
+			byMax = sortByKey(centerIndices, keys);
+			maxValues = new int[centerCount];
+			for (int i = 0; i < centerCount; i++) {
+				maxValues[i] = maxHeights[byMax[i]];
+			}
+			left = leftCount == 0 ? null : new HeightTree(minHeights, maxHeights, Arrays.copyOf(leftIndices, leftCount));
+			right = rightCount == 0 ? null : new HeightTree(minHeights, maxHeights, Arrays.copyOf(rightIndices, rightCount));
+		}
+
+		int size () {
+			return size;
+		}
+
+		/**
+		 * Writes the indexes of all ranges whose height interval contains h into result, starting at
+		 * count.
+		 *
+		 * @return the new count
+		 */
+		int find (int h, int[] result, int count) {
+			HeightTree tree = this;
+			while (tree != null) {
+				if (h < tree.center) {
+					for (int i = 0; i < tree.byMin.length && tree.minValues[i] <= h; i++) {
+						result[count++] = tree.byMin[i];
+					}
+					tree = tree.left;
+				} else if (h > tree.center) {
+					for (int i = 0; i < tree.byMax.length && tree.maxValues[i] >= h; i++) {
+						result[count++] = tree.byMax[i];
+					}
+					tree = tree.right;
+				} else {
+					System.arraycopy(tree.byMin, 0, result, count, tree.byMin.length);
+					count += tree.byMin.length;
+					tree = null;
+				}
+			}
+			return count;
+		}
+	}
+}
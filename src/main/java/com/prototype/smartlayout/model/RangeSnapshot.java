@@ -0,0 +1,251 @@
+package com.prototype.smartlayout.model;
+
+import com.prototype.smartlayout.model.enums.WidthHeightRangeEnum;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Saves the {@link RangeStore}s of all containers of a tree to a binary file and loads them back
+ * without enumerating. The file is mapped into memory and the loaded stores read their columns
+ * straight from the mapping, so nothing is copied when loading.
+ *
+ * <p>File layout, all values little endian ints:
+ *
+ * <ul>
+ * <li>magic, version, length of the structural key, the key in UTF-8 padded to 4 bytes
+ * <li>number of container stores, then every container store in post-order (children first):
+ * <ul>
+ * <li>size, child count, for every child the number of its store or -1 for a component
+ * <li>the min width, max width, min height and max height columns, the child index column and
+ * the orientation column as bytes padded to 4 bytes
+ * </ul>
+ * </ul>
+ *
+ * <p>A snapshot is only loaded if the structural key of the tree is the same as the one in the
+ * file, so a changed tree is enumerated again. Every count and column is checked against the
+ * length of the file, and the child indices and orientations against the stores they refer to,
+ * so a truncated or corrupt file is reported as an IOException. Snapshots are
+ * written to a temporary file that is then moved over the old one, so an interrupted write leaves
+ * the old snapshot in place.
+ */
+@Log4j2
+public final class RangeSnapshot {
+	private static final int MAGIC = 0x534C5253;
+	// Version 2 leaves out the VERTICAL layouts of single child containers.
+	private static final int VERSION = 2;
+
+	private RangeSnapshot () {
+	}
+
+	/**
+	 * Writes the range stores of all containers of the tree, building them if needed. The file is
+	 * replaced atomically, so readers see either the old or the new snapshot.
+	 *
+	 * @param root the root of the tree
+	 * @param path the file to write
+	 */
+	public static void write (LayoutContainer root, Path path) throws IOException {
+		List<LayoutContainer> containers = LayoutContainer.postOrder(root, container -> true);
+		byte[] key = root.getStructureKey().getBytes(StandardCharsets.UTF_8);
+
+		long length = 4L * 4 + padded(key.length);
+		for (LayoutContainer container : containers) {
+			RangeStore store = container.getRangeStore();
+			length += 4L * (2 + store.getChildCount()) + 4L * store.size() * (4 + store.getChildCount()) + padded(store.size());
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Ranges are too large for a snapshot: " + length + " bytes");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(key.length);
+		buffer.put(key);
+		pad(buffer);
+		buffer.putInt(containers.size());
+		for (LayoutContainer container : containers) {
+			RangeStore store = container.getRangeStore();
+			buffer.putInt(store.size());
+			buffer.putInt(store.getChildCount());
+			for (Layoutable child : container.getChildren()) {
+				buffer.putInt(child instanceof LayoutContainer ? containers.indexOf(child) : -1);
+			}
+			for (int i = 0; i < store.size(); i++) {
+				buffer.putInt(store.getMinWidth(i));
+			}
+			for (int i = 0; i < store.size(); i++) {
+				buffer.putInt(store.getMaxWidth(i));
+			}
+			for (int i = 0; i < store.size(); i++) {
+				buffer.putInt(store.getMinHeight(i));
+			}
+			for (int i = 0; i < store.size(); i++) {
+				buffer.putInt(store.getMaxHeight(i));
+			}
+			for (int i = 0; i < store.size(); i++) {
+				for (int c = 0; c < store.getChildCount(); c++) {
+					buffer.putInt(store.getChildIndex(i, c));
+				}
+			}
+			for (int i = 0; i < store.size(); i++) {
+				buffer.put((byte) store.getOrientationStrategy(i).id);
+			}
+			pad(buffer);
+		}
+		buffer.flip();
+		Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(false);
+			}
+			Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Maps the given file and, if it was written for a tree with the same structure, sets the range
+	 * stores of all containers of the tree from it. Their ranges are then built from the stores
+	 * instead of being enumerated.
+	 *
+	 * @param root the root of the tree
+	 * @param path the snapshot file
+	 * @return true if the snapshot was loaded, false if it is missing or belongs to another tree
+	 * @throws IOException if the file cannot be read or is not a complete snapshot
+	 */
+	public static boolean load (LayoutContainer root, Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return false;
+		}
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed.
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+			throw new IOException("Not a range snapshot: " + path);
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			log.debug("Ignoring range snapshot " + path + " with version " + version);
+			return false;
+		}
+		int keyLength = buffer.getInt();
+		require(buffer, keyLength < 0 ? -1 : padded(keyLength), path);
+		byte[] key = new byte[keyLength];
+		buffer.get(key);
+		skipPadding(buffer);
+		if (!root.getStructureKey().equals(new String(key, StandardCharsets.UTF_8))) {
+			log.debug("Ignoring range snapshot " + path + " of another tree");
+			return false;
+		}
+
+		List<LayoutContainer> containers = LayoutContainer.postOrder(root, container -> true);
+		require(buffer, 4, path);
+		if (buffer.getInt() != containers.size()) {
+			throw new IOException("Corrupt range snapshot: " + path);
+		}
+		RangeStore[] stores = new RangeStore[containers.size()];
+		for (int s = 0; s < stores.length; s++) {
+			LayoutContainer container = containers.get(s);
+			require(buffer, 8, path);
+			int size = buffer.getInt();
+			int childCount = buffer.getInt();
+			if (size < 0 || childCount != container.getChildren().size()) {
+				throw new IOException("Corrupt range snapshot: " + path);
+			}
+			require(buffer, 4L * childCount + 4L * size * (4 + childCount) + padded(size), path);
+			RangeStore[] childStores = new RangeStore[childCount];
+			for (int c = 0; c < childCount; c++) {
+				Layoutable child = container.getChildren().get(c);
+				int storeIndex = buffer.getInt();
+				// A child container comes before its parent in post-order, a component has no number.
+				if (storeIndex < 0 ? child instanceof LayoutContainer : storeIndex >= s || containers.get(storeIndex) != child) {
+					throw new IOException("Corrupt range snapshot: " + path);
+				}
+				childStores[c] = storeIndex < 0 ? child.getRangeStore() : stores[storeIndex];
+			}
+			IntBuffer minWidths = intColumn(buffer, size);
+			IntBuffer maxWidths = intColumn(buffer, size);
+			IntBuffer minHeights = intColumn(buffer, size);
+			IntBuffer maxHeights = intColumn(buffer, size);
+			IntBuffer childIndices = intColumn(buffer, size * childCount);
+			ByteBuffer orientations = byteColumn(buffer, size);
+			checkStore(size, childIndices, orientations, childStores, path);
+			stores[s] = new RangeStore(size, minWidths, maxWidths, minHeights, maxHeights, orientations, childIndices, childStores);
+		}
+		for (int s = 0; s < stores.length; s++) {
+			containers.get(s).useRangeStore(stores[s]);
+		}
+		return true;
+	}
+
+	/**
+	 * @throws IOException if fewer than the given number of bytes are left, or the number is negative
+	 */
+	private static void require (ByteBuffer buffer, long bytes, Path path) throws IOException {
+		if (bytes < 0 || bytes > buffer.remaining()) {
+			throw new IOException("Truncated range snapshot: " + path);
+		}
+	}
+
+	private static void checkStore (int size, IntBuffer childIndices, ByteBuffer orientations, RangeStore[] childStores, Path path) throws IOException {
+		for (int i = 0; i < size; i++) {
+			for (int c = 0; c < childStores.length; c++) {
+				int childIndex = childIndices.get(i * childStores.length + c);
+				if (childIndex < 0 || childIndex >= childStores[c].size()) {
+					throw new IOException("Corrupt range snapshot: " + path);
+				}
+			}
+			int orientation = orientations.get(i);
+			if (orientation != WidthHeightRangeEnum.HORIZONTAL.id && orientation != WidthHeightRangeEnum.VERTICAL.id) {
+				throw new IOException("Corrupt range snapshot: " + path);
+			}
+		}
+	}
+
+	private static IntBuffer intColumn (ByteBuffer buffer, int length) {
+		ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		slice.limit(4 * length);
+		buffer.position(buffer.position() + 4 * length);
+		return slice.asIntBuffer();
+	}
+
+	private static ByteBuffer byteColumn (ByteBuffer buffer, int length) {
+		ByteBuffer slice = buffer.slice();
+		slice.limit(length);
+		buffer.position(buffer.position() + length);
+		skipPadding(buffer);
+		return slice;
+	}
+
+	private static int padded (int length) {
+		return (length + 3) & ~3;
+	}
+
+	private static void pad (ByteBuffer buffer) {
+		while (buffer.position() % 4 != 0) {
+			buffer.put((byte) 0);
+		}
+	}
+
+	private static void skipPadding (ByteBuffer buffer) {
+		buffer.position(padded(buffer.position()));
+	}
+}
@@ -0,0 +1,372 @@
+package com.prototype.smartlayout.model;
+
+import com.prototype.smartlayout.model.enums.WidthHeightRangeEnum;
+import com.prototype.smartlayout.utils.LayoutContainerUtils;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * Compact, structure-of-arrays storage for all possible layouts of a single layoutable. Instead of
+ * a WidthHeightRange object per layout, the min/max values and the orientation of layout i are
+ * kept at index i of primitive arrays. A layout of a container points to one layout of each child
+ * through childIndices, where the entry of child c for layout i is at i * childCount + c and
+ * refers to the RangeStore of that child.
+ *
+ * <p>The stores are built with the same combination steps as {@link LayoutContainer#getRanges()}
+ * and hold the same layouts in the same order, so index i of a container store matches index i of
+ * its getRanges vector.
+ */
+public class RangeStore {
+	private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+
+	private final int size;
+	// Heap stores wrap arrays, stores loaded by RangeSnapshot are views of a mapped file.
+	private final IntBuffer minWidths;
+	private final IntBuffer maxWidths;
+	private final IntBuffer minHeights;
+	private final IntBuffer maxHeights;
+	private final ByteBuffer orientations;
+	private final int childCount;
+	private final IntBuffer childIndices;
+	private final RangeStore[] childStores;
+
+	private RangeStore (Columns columns, RangeStore[] childStores) {
+		this(columns.size,
+				IntBuffer.wrap(Arrays.copyOf(columns.minWidths, columns.size)),
+				IntBuffer.wrap(Arrays.copyOf(columns.maxWidths, columns.size)),
+				IntBuffer.wrap(Arrays.copyOf(columns.minHeights, columns.size)),
+				IntBuffer.wrap(Arrays.copyOf(columns.maxHeights, columns.size)),
+				ByteBuffer.wrap(Arrays.copyOf(columns.orientations, columns.size)),
+				IntBuffer.wrap(Arrays.copyOf(columns.childIndices, columns.size * columns.stride)),
+				childStores);
+	}
+
+	RangeStore (int size, IntBuffer minWidths, IntBuffer maxWidths, IntBuffer minHeights, IntBuffer maxHeights, ByteBuffer orientations, IntBuffer childIndices, RangeStore[] childStores) {
+		this.size = size;
+		this.minWidths = minWidths;
+		this.maxWidths = maxWidths;
+		this.minHeights = minHeights;
+		this.maxHeights = maxHeights;
+		this.orientations = orientations;
+		this.childCount = childStores.length;
+		this.childIndices = childIndices;
+		this.childStores = childStores;
+	}
+
+	/**
+	 * Creates the store of a component, which has a single layout.
+	 *
+	 * @param whr the range of the component
+	 * @return a store with one layout and no children
+	 */
+	public static RangeStore of (WidthHeightRange whr) {
+		Columns columns = new Columns(0, 1);
+		columns.add(whr.getOrientationStrategy(), whr.getMinWidth(), whr.getMaxWidth(), whr.getMinHeight(), whr.getMaxHeight(), null, 0, -1);
+		return new RangeStore(columns, new RangeStore[0]);
+	}
+
+	/**
+	 * Creates the store of a container from the stores of its children. The HORIZONTAL layouts
+	 * come first and the VERTICAL ones after them, as in getRanges. With a single child only the
+	 * HORIZONTAL ones are created.
+	 *
+	 * @param childStores  the stores of the children, in the order of the children
+	 * @param rangePruning whether dominated layouts are dropped, as with
+	 *                     {@link LayoutContainer#setRangePruning(boolean)}
+	 * @return the store holding all layouts of the container
+	 */
+	public static RangeStore combine (RangeStore[] childStores, boolean rangePruning) {
+		return combine(childStores, rangePruning, 0);
+	}
+
+	/**
+	 * Same as {@link #combine(RangeStore[], boolean)}, but keeps at most rangeLimit layouts after
+	 * every step, as with {@link LayoutContainer#setRangeLimit(int)}.
+	 *
+	 * @param rangeLimit the most layouts kept after every step, 0 for no limit
+	 */
+	public static RangeStore combine (RangeStore[] childStores, boolean rangePruning, int rangeLimit) {
+		return combine(childStores, rangePruning, rangeLimit, EnumerationBudget.Counter.UNLIMITED);
+	}
+
+	/**
+	 * Same as {@link #combine(RangeStore[], boolean, int)}, but the created layouts are counted.
+	 *
+	 * @throws EnumerationBudget.ExceededException if they are more than the counter allows
+	 */
+	static RangeStore combine (RangeStore[] childStores, boolean rangePruning, int rangeLimit, EnumerationBudget.Counter counter) {
+		Columns horizontal = combine(childStores, WidthHeightRangeEnum.HORIZONTAL, rangePruning, rangeLimit, counter);
+		Columns vertical = childStores.length > 1
+				? combine(childStores, WidthHeightRangeEnum.VERTICAL, rangePruning, rangeLimit, counter)
+				: new Columns(childStores.length, 0);
+		Columns result = new Columns(childStores.length, horizontal.size + vertical.size);
+		result.addAll(horizontal);
+		result.addAll(vertical);
+		if (rangePruning) {
+			result.prune();
+		}
+		if (rangeLimit > 0) {
+			result.trim(rangeLimit);
+		}
+		return new RangeStore(result, childStores);
+	}
+
+	private static Columns combine (RangeStore[] childStores, WidthHeightRangeEnum orientationStrategy, boolean rangePruning, int rangeLimit, EnumerationBudget.Counter counter) {
+		boolean horizontal = WidthHeightRangeEnum.HORIZONTAL.equals(orientationStrategy);
+		Columns movingRanges = new Columns(0, 0);
+		for (int c = 0; c < childStores.length; c++) {
+			RangeStore compStore = childStores[c];
+			// Most combinations are usually infeasible, so the columns grow from a bounded capacity.
+			Columns tempRanges = new Columns(c + 1, (int) Math.min((long) Math.max(movingRanges.size, 1) * compStore.size, MAX_INITIAL_CAPACITY));
+			int counted = 0;
+			if (c == 0) {
+				for (int j = 0; j < compStore.size; j++) {
+					tempRanges.add(orientationStrategy, compStore.minWidths.get(j), compStore.maxWidths.get(j), compStore.minHeights.get(j), compStore.maxHeights.get(j), null, 0, j);
+				}
+			} else {
+				for (int i = 0; i < movingRanges.size; i++) {
+					for (int j = 0; j < compStore.size; j++) {
+						int newMinWidth;
+						int newMaxWidth;
+						int newMinHeight;
+						int newMaxHeight;
+						if (horizontal) {
+							newMinWidth = movingRanges.minWidths[i] + compStore.minWidths.get(j);
+							newMaxWidth = movingRanges.maxWidths[i] + compStore.maxWidths.get(j);
+							newMinHeight = Math.max(movingRanges.minHeights[i], compStore.minHeights.get(j));
+							newMaxHeight = Math.min(movingRanges.maxHeights[i], compStore.maxHeights.get(j));
+						} else {
+							newMinWidth = Math.max(movingRanges.minWidths[i], compStore.minWidths.get(j));
+							newMaxWidth = Math.min(movingRanges.maxWidths[i], compStore.maxWidths.get(j));
+							newMinHeight = movingRanges.minHeights[i] + compStore.minHeights.get(j);
+							newMaxHeight = movingRanges.maxHeights[i] + compStore.maxHeights.get(j);
+						}
+						if (horizontal ? newMaxHeight >= newMinHeight : newMaxWidth >= newMinWidth) {
+							tempRanges.add(orientationStrategy, newMinWidth, newMaxWidth, newMinHeight, newMaxHeight, movingRanges.childIndices, i * c, j);
+						}
+					}
+					if (tempRanges.size - counted >= EnumerationBudget.COUNT_BATCH) {
+						counter.add(tempRanges.size - counted);
+						counted = tempRanges.size;
+					}
+				}
+			}
+			counter.add(tempRanges.size - counted);
+			movingRanges = tempRanges;
+			if (rangePruning) {
+				movingRanges.prune();
+			}
+			if (rangeLimit > 0) {
+				movingRanges.trim(rangeLimit);
+			}
+			if (movingRanges.size == 0) {
+				return new Columns(childStores.length, 0);
+			}
+		}
+		return movingRanges;
+	}
+
+	public int size () {
+		return size;
+	}
+
+	public int getMinWidth (int index) {
+		return minWidths.get(index);
+	}
+
+	public int getMaxWidth (int index) {
+		return maxWidths.get(index);
+	}
+
+	public int getMinHeight (int index) {
+		return minHeights.get(index);
+	}
+
+	public int getMaxHeight (int index) {
+		return maxHeights.get(index);
+	}
+
+	public WidthHeightRangeEnum getOrientationStrategy (int index) {
+		return WidthHeightRangeEnum.fromId(orientations.get(index));
+	}
+
+	public int getChildCount () {
+		return childCount;
+	}
+
+	public RangeStore getChildStore (int child) {
+		return childStores[child];
+	}
+
+	/**
+	 * @return the index, in the store of the given child, of the layout that layout index uses
+	 */
+	public int getChildIndex (int index, int child) {
+		return childIndices.get(index * childCount + child);
+	}
+
+	/**
+	 * Same check as SmartLayout does on a WidthHeightRange, only the given size has to be within
+	 * the min/max values of the layout.
+	 */
+	public boolean isFeasible (int index, int w, int h) {
+		return w >= minWidths.get(index) && w <= maxWidths.get(index) && h >= minHeights.get(index) && h <= maxHeights.get(index);
+	}
+
+	/**
+	 * Scans the min/max arrays once and returns the indexes of all layouts that can be used for the
+	 * given size.
+	 *
+	 * @param w the width to fit
+	 * @param h the height to fit
+	 * @return the feasible indexes in ascending order
+	 */
+	public int[] feasibleIndices (int w, int h) {
+		int[] result = new int[size];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (w >= minWidths.get(i) && w <= maxWidths.get(i) && h >= minHeights.get(i) && h <= maxHeights.get(i)) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Builds the WidthHeightRange object of a single layout, including all of its sub ranges.
+	 *
+	 * @param index the layout to convert
+	 * @return a WidthHeightRange that can be given to {@link Layoutable#layout}
+	 */
+	public WidthHeightRange toWidthHeightRange (int index) {
+		WidthHeightRange whr = new WidthHeightRange(getOrientationStrategy(index), getMinWidth(index), getMaxWidth(index), getMinHeight(index), getMaxHeight(index));
+		for (int c = 0; c < childCount; c++) {
+			whr.addSubRange(childStores[c].toWidthHeightRange(getChildIndex(index, c)));
+		}
+		return whr;
+	}
+
+	/**
+	 * Converts the whole store to the vector returned by getRanges. Sub ranges are shared between
+	 * layouts in the same way getRanges shares them.
+	 *
+	 * @return all layouts of this store as WidthHeightRange objects
+	 */
+	public Vector<WidthHeightRange> toRanges () {
+		Vector<WidthHeightRange> ranges = new Vector<>(size);
+		if (childCount == 0) {
+			for (int i = 0; i < size; i++) {
+				ranges.add(new WidthHeightRange(getOrientationStrategy(i), getMinWidth(i), getMaxWidth(i), getMinHeight(i), getMaxHeight(i)));
+			}
+			return ranges;
+		}
+		Vector<Vector<WidthHeightRange>> childRanges = new Vector<>(childCount);
+		for (RangeStore childStore : childStores) {
+			childRanges.add(childStore.toRanges());
+		}
+		for (int i = 0; i < size; i++) {
+			WidthHeightRange whr = new WidthHeightRange(getOrientationStrategy(i), getMinWidth(i), getMaxWidth(i), getMinHeight(i), getMaxHeight(i));
+			for (int c = 0; c < childCount; c++) {
+				whr.addSubRange(childRanges.get(c).get(getChildIndex(i, c)));
+			}
+			ranges.add(whr);
+		}
+		return ranges;
+	}
+
+	/**
+	 * Growable columns used while the layouts of a container are combined.
+	 */
+	private static class Columns {
+		private final int stride;
+		private int size = 0;
+		private int[] minWidths;
+		private int[] maxWidths;
+		private int[] minHeights;
+		private int[] maxHeights;
+		private byte[] orientations;
+		private int[] childIndices;
+
+		Columns (int stride, int capacity) {
+			this.stride = stride;
+			capacity = Math.max(capacity, 1);
+			minWidths = new int[capacity];
+			maxWidths = new int[capacity];
+			minHeights = new int[capacity];
+			maxHeights = new int[capacity];
+			orientations = new byte[capacity];
+			childIndices = new int[capacity * stride];
+		}
+
+		/**
+		 * Appends a layout whose child indexes are the stride - 1 indexes of the given prefix followed
+		 * by childIndex.
+		 */
+		void add (WidthHeightRangeEnum orientationStrategy, int minWidth, int maxWidth, int minHeight, int maxHeight, int[] prefix, int prefixOffset, int childIndex) {
+			ensureCapacity(size + 1);
+			minWidths[size] = minWidth;
+			maxWidths[size] = maxWidth;
+			minHeights[size] = minHeight;
+			maxHeights[size] = maxHeight;
+			orientations[size] = (byte) orientationStrategy.id;
+			if (stride > 0) {
+				int offset = size * stride;
+				if (prefix != null) {
+					System.arraycopy(prefix, prefixOffset, childIndices, offset, stride - 1);
+				}
+				childIndices[offset + stride - 1] = childIndex;
+			}
+			size++;
+		}
+
+		void addAll (Columns other) {
+			ensureCapacity(size + other.size);
+			System.arraycopy(other.minWidths, 0, minWidths, size, other.size);
+			System.arraycopy(other.maxWidths, 0, maxWidths, size, other.size);
+			System.arraycopy(other.minHeights, 0, minHeights, size, other.size);
+			System.arraycopy(other.maxHeights, 0, maxHeights, size, other.size);
+			System.arraycopy(other.orientations, 0, orientations, size, other.size);
+			System.arraycopy(other.childIndices, 0, childIndices, size * stride, other.size * stride);
+			size += other.size;
+		}
+
+		void prune () {
+			remove(LayoutContainerUtils.findDominatedRanges(minWidths, maxWidths, minHeights, maxHeights, size));
+		}
+
+		void trim (int limit) {
+			remove(LayoutContainerUtils.findTrimmedRanges(minWidths, maxWidths, minHeights, maxHeights, size, limit));
+		}
+
+		private void remove (boolean[] removed) {
+			int target = 0;
+			for (int source = 0; source < size; source++) {
+				if (!removed[source]) {
+					minWidths[target] = minWidths[source];
+					maxWidths[target] = maxWidths[source];
+					minHeights[target] = minHeights[source];
+					maxHeights[target] = maxHeights[source];
+					orientations[target] = orientations[source];
+					System.arraycopy(childIndices, source * stride, childIndices, target * stride, stride);
+					target++;
+				}
+			}
+			size = target;
+		}
+
+		private void ensureCapacity (int capacity) {
+			if (capacity <= minWidths.length) {
+				return;
+			}
+			int newCapacity = Math.max(capacity, minWidths.length * 2);
+			minWidths = Arrays.copyOf(minWidths, newCapacity);
+			maxWidths = Arrays.copyOf(maxWidths, newCapacity);
+			minHeights = Arrays.copyOf(minHeights, newCapacity);
+			maxHeights = Arrays.copyOf(maxHeights, newCapacity);
+			orientations = Arrays.copyOf(orientations, newCapacity);
+			childIndices = Arrays.copyOf(childIndices, newCapacity * stride);
+		}
+	}
+}
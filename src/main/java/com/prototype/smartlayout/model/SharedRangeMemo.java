@@ -0,0 +1,93 @@
+package com.prototype.smartlayout.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Global memo of container ranges, keyed by the structure of the subtree (see
+ * {@link LayoutContainer#getStructureKey()}). Forms built from the templates contain many
+ * containers with the same children, e.g. every radio button and label pair. The first of them
+ * enumerates its ranges and the others get the same vector, which must therefore be treated as
+ * read-only.
+ *
+ * <p>The memo holds at most maxRanges ranges in total. When it is full, the least recently used
+ * subtrees are dropped first.
+ */
+@Log4j2
+public final class SharedRangeMemo {
+	private static final int DEFAULT_MAX_RANGES = 1 << 20;
+
+	private static final LinkedHashMap<String, Vector<WidthHeightRange>> memo = new LinkedHashMap<>(64, 0.75f, true);
+	private static boolean enabled = true;
+	private static int maxRanges = DEFAULT_MAX_RANGES;
+	private static int rangeCount = 0;
+
+	private SharedRangeMemo () {
+	}
+
+	/**
+	 * @return the ranges stored for the given structure, or null if there are none
+	 */
+	public static synchronized Vector<WidthHeightRange> get (String structureKey) {
+		if (!enabled) {
+			return null;
+		}
+		return memo.get(structureKey);
+	}
+
+	/**
+	 * Stores the ranges of a subtree. Vectors larger than the whole memo are not stored.
+	 */
+	public static synchronized void put (String structureKey, Vector<WidthHeightRange> ranges) {
+		if (!enabled || ranges.size() > maxRanges) {
+			return;
+		}
+		Vector<WidthHeightRange> previous = memo.put(structureKey, ranges);
+		if (previous != null) {
+			rangeCount -= previous.size();
+		}
+		rangeCount += ranges.size();
+		evict();
+	}
+
+	private static void evict () {
+		Iterator<Map.Entry<String, Vector<WidthHeightRange>>> iterator = memo.entrySet().iterator();
+		while (rangeCount > maxRanges && iterator.hasNext()) {
+			Map.Entry<String, Vector<WidthHeightRange>> eldest = iterator.next();
+			rangeCount -= eldest.getValue().size();
+			iterator.remove();
+			log.trace("Evicted " + eldest.getValue().size() + " shared ranges.");
+		}
+	}
+
+	public static synchronized void clear () {
+		memo.clear();
+		rangeCount = 0;
+	}
+
+	public static synchronized boolean isEnabled () {
+		return enabled;
+	}
+
+	/**
+	 * Turns sharing on or off. Turning it off also empties the memo.
+	 */
+	public static synchronized void setEnabled (boolean enabled) {
+		SharedRangeMemo.enabled = enabled;
+		if (!enabled) {
+			clear();
+		}
+	}
+
+	public static synchronized void setMaxRanges (int maxRanges) {
+		SharedRangeMemo.maxRanges = maxRanges;
+		evict();
+	}
+
+	public static synchronized int size () {
+		return memo.size();
+	}
+}
@@ -3,6 +3,7 @@ package com.prototype.smartlayout.model;
 import com.prototype.smartlayout.model.enums.ComponentDimensionEnum;
 import com.prototype.smartlayout.model.enums.WidthHeightRangeEnum;
 import java.util.Vector;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -22,6 +23,11 @@ public class WidthHeightRange {
 
 	private Vector<WidthHeightRange> subRanges;
 
+	// Range whose sub ranges come before the ones in subRanges. Combinations of a container share
+	// the range they were built from instead of copying its sub ranges.
+	@Setter(AccessLevel.NONE)
+	private WidthHeightRange prefix;
+
 	public WidthHeightRange (
 			WidthHeightRangeEnum orientationStrategy,
 			int minWidth,
@@ -32,7 +38,7 @@ public class WidthHeightRange {
 		this.maxWidth = maxWidth;
 		this.minHeight = minHeight;
 		this.maxHeight = maxHeight;
-		subRanges = new Vector<>();
+		subRanges = new Vector<>(1);
 		this.orientationStrategy = orientationStrategy;
 	}
 
@@ -42,7 +48,7 @@ public class WidthHeightRange {
 		this.maxWidth = item.maxWidth;
 		this.minHeight = item.minHeight;
 		this.maxHeight = item.maxHeight;
-		subRanges = new Vector<>();
+		subRanges = new Vector<>(1);
 		this.orientationStrategy = orientationStrategy;
 	}
 
@@ -51,7 +57,7 @@ public class WidthHeightRange {
 		maxWidth = widthHeightRange.getMaxWidth();
 		minHeight = widthHeightRange.getMinHeight();
 		maxHeight = widthHeightRange.getMaxHeight();
-		subRanges = new Vector<>();
+		subRanges = new Vector<>(1);
 		orientationStrategy = widthHeightRange.getOrientationStrategy();
 	}
 
@@ -63,6 +69,66 @@ public class WidthHeightRange {
 		subRanges.addAll(subRangeVector);
 	}
 
+	/**
+	 * Adds all sub ranges of the given range in front of the sub ranges of this one. If this range
+	 * has no sub ranges yet, only a reference to whr is kept, so this takes constant time and the
+	 * sub ranges are only put together when {@link #getSubRanges()} is called.
+	 *
+	 * @param whr The range whose sub ranges are added.
+	 */
+	public void addSubRangesOf (WidthHeightRange whr) {
+		if (prefix == null && subRanges.isEmpty()) {
+			prefix = whr;
+		} else {
+			subRanges.addAll(whr.getSubRanges());
+		}
+	}
+
+	/**
+	 * Returns the sub ranges of this range, one for each child of the container. Ranges that share
+	 * their prefix with another range build a new vector on every call, so callers should keep the
+	 * result instead of calling this in a loop.
+	 *
+	 * @return The sub ranges in the order of the children.
+	 */
+	public Vector<WidthHeightRange> getSubRanges () {
+		if (prefix == null) {
+			return subRanges;
+		}
+		int size = 0;
+		for (WidthHeightRange node = this; node != null; node = node.prefix) {
+			size += node.subRanges.size();
+		}
+		Vector<WidthHeightRange> result = new Vector<>(size);
+		result.setSize(size);
+		int end = size;
+		for (WidthHeightRange node = this; node != null; node = node.prefix) {
+			for (int i = node.subRanges.size() - 1; i >= 0; i--) {
+				result.set(--end, node.subRanges.get(i));
+			}
+		}
+		return result;
+	}
+
+	public void setSubRanges (Vector<WidthHeightRange> subRanges) {
+		this.subRanges = subRanges;
+		prefix = null;
+	}
+
+	/**
+	 * Checks whether the width and height ranges of this object cover the ranges of the given
+	 * object. Every size that is feasible for the given range is then feasible for this one too.
+	 *
+	 * @param whr The range to compare against.
+	 * @return true if the min/max envelope of this range contains the envelope of whr.
+	 */
+	public boolean contains (WidthHeightRange whr) {
+		return minWidth <= whr.getMinWidth()
+				&& maxWidth >= whr.getMaxWidth()
+				&& minHeight <= whr.getMinHeight()
+				&& maxHeight >= whr.getMaxHeight();
+	}
+
 	private String getOrientationStrategyString () {
 		if (getOrientationStrategy() == WidthHeightRangeEnum.SINGLE) {
 			return "S";
@@ -80,8 +146,9 @@ public class WidthHeightRange {
 	private String getOrientationTreeString () {
 		StringBuilder builder = new StringBuilder("<");
 		builder.append(getOrientationStrategyString());
-		if (!subRanges.isEmpty()) {
-			for (WidthHeightRange whr : subRanges) {
+		Vector<WidthHeightRange> ranges = getSubRanges();
+		if (!ranges.isEmpty()) {
+			for (WidthHeightRange whr : ranges) {
 				builder.append(whr.getOrientationTreeString());
 			}
 		}
@@ -0,0 +1,26 @@
+package com.prototype.smartlayout.model.enums;
+
+/**
+ * The aesthetic metrics of a layout, in the order they are added up into its score.
+ */
+public enum AestheticMetricEnum {
+	BALANCE("balance"),
+	EQUILIBRIUM("equilibrium"),
+	SYMMETRY("symmetry"),
+	SEQUENCE("sequence"),
+	COHESION("cohesion"),
+	UNITY("unity"),
+	PROPORTION("proportion"),
+	SIMPLICITY("simplicity"),
+	DENSITY("density"),
+	REGULARITY("regularity"),
+	ECONOMY("economy"),
+	HOMOGENEITY("homogeneity"),
+	RHYTHM("rhythm");
+
+	public final String label;
+
+	AestheticMetricEnum (String label) {
+		this.label = label;
+	}
+}
@@ -0,0 +1,52 @@
+package com.prototype.smartlayout.model.enums;
+
+import com.prototype.smartlayout.model.DistributionStrategy;
+import com.prototype.smartlayout.utils.LayoutContainerUtils;
+
+/**
+ * The built in distribution strategies. The default one is BALANCE.
+ */
+public enum DistributionStrategyEnum implements DistributionStrategy {
+	// Mins first, then the remaining pixels to the smallest children, like a water scale
+	BALANCE {
+		@Override
+		public void distribute (int[] minValues, int[] maxValues, int count, int total, int[] distribution) {
+			LayoutContainerUtils.balanceDistribution(minValues, maxValues, count, total, distribution);
+		}
+	},
+	// Mins first, then the same amount to every child that is not full
+	FAIR {
+		@Override
+		public void distribute (int[] minValues, int[] maxValues, int count, int total, int[] distribution) {
+			LayoutContainerUtils.fairDistribution(minValues, maxValues, count, total, distribution);
+		}
+	},
+	// In proportion to the max values
+	WEIGHT_MAX {
+		@Override
+		public void distribute (int[] minValues, int[] maxValues, int count, int total, int[] distribution) {
+			LayoutContainerUtils.weightDistribution(maxValues, count, total, distribution);
+		}
+	},
+	// In proportion to the min values
+	WEIGHT_MIN {
+		@Override
+		public void distribute (int[] minValues, int[] maxValues, int count, int total, int[] distribution) {
+			LayoutContainerUtils.weightDistribution(minValues, count, total, distribution);
+		}
+	},
+	// Every child gets its max, whatever the total is
+	VALUES_MAX {
+		@Override
+		public void distribute (int[] minValues, int[] maxValues, int count, int total, int[] distribution) {
+			System.arraycopy(maxValues, 0, distribution, 0, count);
+		}
+	},
+	// Every child gets its min, whatever the total is
+	VALUES_MIN {
+		@Override
+		public void distribute (int[] minValues, int[] maxValues, int count, int total, int[] distribution) {
+			System.arraycopy(minValues, 0, distribution, 0, count);
+		}
+	}
+}
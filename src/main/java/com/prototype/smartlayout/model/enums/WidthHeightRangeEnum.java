@@ -11,4 +11,13 @@ public enum WidthHeightRangeEnum {
 	WidthHeightRangeEnum (int id) {
 		this.id = id;
 	}
+
+	public static WidthHeightRangeEnum fromId (int id) {
+		for (WidthHeightRangeEnum value : values()) {
+			if (value.id == id) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("No orientation strategy with id " + id);
+	}
 }
@@ -0,0 +1,179 @@
+package com.prototype.smartlayout.utils;
+
+import com.prototype.smartlayout.model.LayoutContainer;
+import com.prototype.smartlayout.model.WidthHeightRange;
+import com.prototype.smartlayout.model.enums.AestheticMetricEnum;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import lombok.Getter;
+
+/**
+ * Selects the layout with the highest aesthetic score for a window size, which is what SmartLayout
+ * does on a resize. The candidates are split into chunks that the workers of a pool score at the
+ * same time. A worker lays a candidate out into a rectangle buffer of its own with
+ * {@link LayoutContainer#layoutInto(int, int, int, int, WidthHeightRange, int[])}, which leaves
+ * the tree alone, and measures the rectangles with the scorer of its thread. The best candidates
+ * of the chunks are reduced to the one with the highest score, the first one on ties, so the
+ * result does not depend on the number of workers.
+ *
+ * <p>The same way, the selector can keep the value of every metric for every candidate in an
+ * {@link AestheticScoreMatrix}, to rank the candidates with other weights later.
+ */
+public class AestheticLayoutSelector {
+	// Fewer candidates than this are not worth a task of their own
+	private static final int MIN_CHUNK_SIZE = 16;
+	// Chunks per worker, so a worker that got slow candidates does not hold up the others
+	private static final int CHUNKS_PER_WORKER = 4;
+	private static final ThreadLocal<int[]> BUFFERS = ThreadLocal.withInitial(() -> new int[64]);
+	// Compute all metrics for the score matrices, whatever the current weights are
+	private static final ThreadLocal<AestheticScorer> MATRIX_SCORERS = ThreadLocal.withInitial(() -> new AestheticScorer(WeightProfile.ALL));
+	private static final ThreadLocal<double[]> METRIC_VALUES = ThreadLocal.withInitial(() -> new double[AestheticMetricEnum.values().length]);
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Scores on the common pool.
+	 */
+	public AestheticLayoutSelector () {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool the pool whose workers score the candidates
+	 */
+	public AestheticLayoutSelector (ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Lays out and scores every layout for the given size, without changing the tree.
+	 *
+	 * @param root    the tree, which is only read
+	 * @param layouts the candidates, layouts of root
+	 * @return the best candidate, or null if there are none
+	 */
+	public Selection select (LayoutContainer root, int w, int h, List<WidthHeightRange> layouts) {
+		int count = layouts.size();
+		if (count == 0) {
+			return null;
+		}
+		int leafCount = root.getLeafCount();
+		int chunkSize = getChunkSize(count);
+		int chunks = (count - 1) / chunkSize + 1;
+		if (chunks == 1) {
+			return selectChunk(root, w, h, layouts, leafCount, 0, count);
+		}
+		try {
+			return pool.submit(() -> IntStream.range(0, chunks).parallel()
+					.mapToObj(chunk -> selectChunk(root, w, h, layouts, leafCount, chunk * chunkSize, Math.min(count, (chunk + 1) * chunkSize)))
+					.reduce(Selection::better)
+					.orElse(null)).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Aesthetic layout selection was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Aesthetic layout selection failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Lays out every layout for the given size, without changing the tree, and stores the value of
+	 * every metric for it.
+	 *
+	 * @param root    the tree, which is only read
+	 * @param layouts the candidates, layouts of root
+	 * @return the values of the metrics, in the order of the candidates
+	 */
+	public AestheticScoreMatrix scoreMatrix (LayoutContainer root, int w, int h, List<WidthHeightRange> layouts) {
+		int count = layouts.size();
+		AestheticScoreMatrix matrix = new AestheticScoreMatrix(count);
+		if (count == 0) {
+			return matrix;
+		}
+		int leafCount = root.getLeafCount();
+		int chunkSize = getChunkSize(count);
+		int chunks = (count - 1) / chunkSize + 1;
+		if (chunks == 1) {
+			measureChunk(root, w, h, layouts, leafCount, 0, count, matrix);
+			return matrix;
+		}
+		try {
+			// Every chunk writes its own entries of the columns.
+			pool.submit(() -> IntStream.range(0, chunks).parallel()
+					.forEach(chunk -> measureChunk(root, w, h, layouts, leafCount, chunk * chunkSize, Math.min(count, (chunk + 1) * chunkSize), matrix))).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Aesthetic score matrix computation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Aesthetic score matrix computation failed", e.getCause());
+		}
+		return matrix;
+	}
+
+	private int getChunkSize (int count) {
+		return Math.max(MIN_CHUNK_SIZE, (count - 1) / (CHUNKS_PER_WORKER * pool.getParallelism()) + 1);
+	}
+
+	private static void measureChunk (LayoutContainer root, int w, int h, List<WidthHeightRange> layouts, int leafCount, int from, int to, AestheticScoreMatrix matrix) {
+		int[] rectangles = getBuffer(leafCount);
+		AestheticScorer scorer = MATRIX_SCORERS.get();
+		double[] values = METRIC_VALUES.get();
+		for (int index = from; index < to; index++) {
+			Arrays.fill(rectangles, 0, 4 * leafCount, 0);
+			root.layoutInto(0, 0, w, h, layouts.get(index), rectangles);
+			scorer.measureMetrics(rectangles, leafCount, w, h, values);
+			matrix.setValues(index, values);
+		}
+	}
+
+	private static int[] getBuffer (int leafCount) {
+		int[] rectangles = BUFFERS.get();
+		if (rectangles.length < 4 * leafCount) {
+			rectangles = new int[4 * leafCount];
+			BUFFERS.set(rectangles);
+		}
+		return rectangles;
+	}
+
+	private static Selection selectChunk (LayoutContainer root, int w, int h, List<WidthHeightRange> layouts, int leafCount, int from, int to) {
+		int[] rectangles = getBuffer(leafCount);
+		int best = -1;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int index = from; index < to; index++) {
+			// A layout that stops at a container would leave the rectangles of the last one.
+			Arrays.fill(rectangles, 0, 4 * leafCount, 0);
+			root.layoutInto(0, 0, w, h, layouts.get(index), rectangles);
+			double score = AestheticMeasureUtil.measureAesthetics(rectangles, leafCount, w, h, false);
+			if (best < 0 || Double.compare(score, bestScore) > 0) {
+				best = index;
+				bestScore = score;
+			}
+		}
+		return new Selection(best, bestScore);
+	}
+
+	/**
+	 * A candidate and its score.
+	 */
+	@Getter
+	public static class Selection {
+		private final int index;
+		private final double score;
+
+		private Selection (int index, double score) {
+			this.index = index;
+			this.score = score;
+		}
+
+		/**
+		 * The one with the higher score, or with the lower index on ties.
+		 */
+		private static Selection better (Selection a, Selection b) {
+			int compare = Double.compare(a.score, b.score);
+			return compare > 0 || compare == 0 && a.index < b.index ? a : b;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.prototype.smartlayout.utils;
+
+import com.prototype.smartlayout.model.enums.AestheticMetricEnum;
+import lombok.Getter;
+
+/**
+ * The unweighted value of every aesthetic metric for every candidate layout of a window size,
+ * stored by metric, see {@link AestheticLayoutSelector#scoreMatrix}. The candidates can then be
+ * scored and ranked with any {@link WeightProfile} without laying them out again, with a single
+ * pass over the columns of the metrics the profile uses.
+ *
+ * <p>The scores are the same as {@link AestheticScorer} gives for the profile. A value that is
+ * undefined for a layout counts as 0 there, so it is stored as 0.
+ */
+public class AestheticScoreMatrix {
+	// The values of a metric for all candidates, by metric ordinal
+	private final double[][] columns;
+	@Getter
+	private final int candidateCount;
+
+	AestheticScoreMatrix (int candidateCount) {
+		this.candidateCount = candidateCount;
+		columns = new double[AestheticMetricEnum.values().length][candidateCount];
+	}
+
+	public double getValue (AestheticMetricEnum metric, int candidate) {
+		return columns[metric.ordinal()][candidate];
+	}
+
+	/**
+	 * Stores the values of a candidate, as written by
+	 * {@link AestheticScorer#measureMetrics(int[], int, int, int, double[])}.
+	 */
+	void setValues (int candidate, double[] values) {
+		for (int metric = 0; metric < columns.length; metric++) {
+			columns[metric][candidate] = Double.isNaN(values[metric]) ? 0 : values[metric];
+		}
+	}
+
+	/**
+	 * @return the score of every candidate with the given weights
+	 */
+	public double[] score (WeightProfile weightProfile) {
+		double[] scores = new double[candidateCount];
+		// The metrics are added up in the order of AestheticMetricEnum, like the scorer does.
+		for (AestheticMetricEnum metric : AestheticMetricEnum.values()) {
+			if (!weightProfile.isUsed(metric)) {
+				continue;
+			}
+			double[] column = columns[metric.ordinal()];
+			double weight = weightProfile.getWeight(metric);
+			for (int candidate = 0; candidate < candidateCount; candidate++) {
+				scores[candidate] += column[candidate] * weight;
+			}
+		}
+		double orderAndComplexityWeight = weightProfile.getOrderAndComplexityWeight();
+		for (int candidate = 0; candidate < candidateCount; candidate++) {
+			scores[candidate] += scores[candidate] / 13d * orderAndComplexityWeight;
+		}
+		return scores;
+	}
+
+	/**
+	 * @return the index of the candidate with the highest score with the given weights, the first
+	 * one on ties, or -1 if there are no candidates
+	 */
+	public int best (WeightProfile weightProfile) {
+		double[] scores = score(weightProfile);
+		int best = -1;
+		for (int candidate = 0; candidate < candidateCount; candidate++) {
+			if (best < 0 || Double.compare(scores[candidate], scores[best]) > 0) {
+				best = candidate;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,854 @@
+package com.prototype.smartlayout.utils;
+
+import com.prototype.smartlayout.model.LayoutComponent;
+import com.prototype.smartlayout.model.LayoutContainer;
+import com.prototype.smartlayout.model.Layoutable;
+import com.prototype.smartlayout.model.WidthHeightRange;
+import com.prototype.smartlayout.model.enums.AestheticMetricEnum;
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * These measures does not include color shape etc.
+ * formulas gained from <site>http://www.mi.sanu.ac.rs/vismath/ngo/index.html</site>
+ *
+ * <p>A scorer keeps the intermediate data of a measurement in its own fields, which are reused by
+ * the next one. So a scorer is not thread safe, but any number of them can measure at the same
+ * time, one per thread, see {@link AestheticMeasureUtil#measureAesthetics(Layoutable, boolean)}.
+ *
+ * <p>Only the bounds of the components are measured, so a layout can also be measured from the
+ * rectangles of {@link LayoutContainer#layoutInto(int, int, int, int, WidthHeightRange, int[])},
+ * without laying it out into the tree.
+ *
+ * <p>Everything the measures need is collected in a single pass over the components into
+ * primitive arrays, which grow with the largest layout measured and are reused afterwards, so a
+ * measurement costs O(n log n) for the sorting of the alignment points and sizes, and nothing is
+ * boxed.
+ *
+ * <p>The metrics are weighted by a {@link WeightProfile}. From the profile the scorer makes an
+ * evaluation plan, so that only the metrics with a weight other than 0, and the data they need,
+ * are computed.
+ */
+@Log4j2
+public class AestheticScorer {
+	private static final double[] rectangleRatios = {1, 1 / 1.414, 1 / 1.618, 1 / 1.732, 1 / 2.0};
+	// The quadrants, as indices of the arrays of the symmetry data
+	private static final int UL = 0;
+	private static final int UR = 1;
+	private static final int LL = 2;
+	private static final int LR = 3;
+
+	@Getter
+	private final WeightProfile weightProfile;
+	private final EvaluationPlan plan;
+	// The weighted value of every metric in the last measurement, 0 for the ones not computed
+	private final double[] metricValues = new double[AestheticMetricEnum.values().length];
+
+	// The areas of the components on each side of the center, their areas and their centers
+	private double[] leftAreas = new double[16];
+	private double[] rightAreas = new double[16];
+	private double[] topAreas = new double[16];
+	private double[] bottomAreas = new double[16];
+	private double[] areas = new double[16];
+	private double[] centerXs = new double[16];
+	private double[] centerYs = new double[16];
+	private double maxLeftArea;
+	private double maxRightArea;
+	private double maxTopArea;
+	private double maxBottomArea;
+	// Symmetry data of the components in each quadrant
+	private final int[] quadrantCounts = new int[4];
+	private final double[] symX = new double[4];
+	private final double[] symY = new double[4];
+	private final double[] symB = new double[4];
+	private final double[] symH = new double[4];
+	private final double[] symTheta = new double[4];
+	private final double[] symR = new double[4];
+	private final double[] symArea = new double[4];
+	// The x, y, width and height of the components being measured, 4 values per component
+	private int[] rectangles = null;
+	private int componentCount = 0;
+	// Receives the rectangles of a measured tree
+	private int[] treeRectangles = new int[64];
+
+	private double xul;
+	private double xur;
+	private double xll;
+	private double xlr;
+	private double yul;
+	private double yur;
+	private double yll;
+	private double ylr;
+
+	private double frameWidth = 0;
+	private double frameHeight = 0;
+	private final double screenWidth;
+	private final double screenHeight;
+	// Sorted and without duplicates after the pass, only the first count entries are used
+	private int[] horizontalAlignmentPoints = new int[32];
+	private int[] verticalAlignmentPoints = new int[32];
+	private int horizontalAlignmentCount = 0;
+	private int verticalAlignmentCount = 0;
+	// nSpacing looks at the unique spacing of row AND columns so we count them together
+	private int[] distances = new int[64];
+	private int distinctDistanceCount = 0;
+	// The width and height of every component in a long, to count the distinct sizes
+	private long[] sizes = new long[16];
+	private int distinctAreaCount = 0;
+
+	/**
+	 * Measures with the default weights for the size of the default screen, which is read once here.
+	 */
+	public AestheticScorer () {
+		this(WeightProfile.DEFAULT);
+	}
+
+	/**
+	 * Measures with the given weights for the size of the default screen, which is read once here.
+	 */
+	public AestheticScorer (WeightProfile weightProfile) {
+		// gets total screen size, supports multi-monitors as long as they all are the same resolution
+		// Multi-screen support
+		// DisplayMode dm = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode();
+		// screenWidth = dm.getWidth();
+		// screenHeight = dm.getHeight();
+
+		// Single screen support
+		this(Toolkit.getDefaultToolkit().getScreenSize(), weightProfile);
+	}
+
+	/**
+	 * Measures with the default weights for the given screen size, for example when there is no
+	 * screen.
+	 */
+	public AestheticScorer (Dimension screenSize) {
+		this(screenSize, WeightProfile.DEFAULT);
+	}
+
+	public AestheticScorer (Dimension screenSize, WeightProfile weightProfile) {
+		screenWidth = screenSize.getWidth();
+		screenHeight = screenSize.getHeight();
+		this.weightProfile = weightProfile;
+		plan = new EvaluationPlan(weightProfile);
+	}
+
+	/**
+	 * Measures the bounds assigned to the components of a laid out tree.
+	 */
+	public double measureAesthetics (Layoutable tree, boolean logEnabled) {
+		componentCount = 0;
+		traverseToLeafNodes(tree);
+		return measureAesthetics(treeRectangles, componentCount, tree.getAssignedWidth(), tree.getAssignedHeight(), logEnabled);
+	}
+
+	/**
+	 * Measures a layout given as the rectangles of its components.
+	 *
+	 * @param rectangles the x, y, width and height of every component, 4 values per component
+	 * @param count      the number of components
+	 * @param width      the width of the frame
+	 * @param height     the height of the frame
+	 */
+	public double measureAesthetics (int[] rectangles, int count, int width, int height, boolean logEnabled) {
+		collect(rectangles, count, width, height);
+
+		// The metrics are added up in the order of AestheticMetricEnum, the ones not computed are 0.
+		Arrays.fill(metricValues, 0);
+		double orderAndComplexityNumber = 0;
+		for (AestheticMetricEnum metric : plan.metrics) {
+			double value = measure(metric);
+			value = Double.isNaN(value) ? 0 : value * weightProfile.getWeight(metric);
+			metricValues[metric.ordinal()] = value;
+			orderAndComplexityNumber += value;
+		}
+		double orderAndComplexity = measureOrderAndComplexity(orderAndComplexityNumber) * weightProfile.getOrderAndComplexityWeight();
+
+		if (logEnabled) {
+			StringBuilder sb = new StringBuilder("\n");
+			for (AestheticMetricEnum metric : AestheticMetricEnum.values()) {
+				sb.append("\t").append(metric.label).append(": ").append(metricValues[metric.ordinal()]).append("\n");
+			}
+			sb.append("\torderAndComplexity: ").append(orderAndComplexity);
+			log.info(sb.toString());
+		}
+
+		return orderAndComplexityNumber + orderAndComplexity;
+	}
+
+	/**
+	 * Measures the metrics of the weight profile of this scorer without weighting them, so they can
+	 * be weighted later, see {@link AestheticScoreMatrix}.
+	 *
+	 * @param values receives the value of every metric of the profile at its ordinal, NaN if it is
+	 *               undefined for the layout. The other entries are not changed.
+	 */
+	public void measureMetrics (int[] rectangles, int count, int width, int height, double[] values) {
+		collect(rectangles, count, width, height);
+		for (AestheticMetricEnum metric : plan.metrics) {
+			values[metric.ordinal()] = measure(metric);
+		}
+	}
+
+	/**
+	 * Collects the data the metrics of the plan need from the components in a single pass.
+	 */
+	private void collect (int[] rectangles, int count, int width, int height) {
+		clearValues();
+		ensureCapacity(count);
+		frameWidth = width;
+		frameHeight = height;
+		this.rectangles = rectangles;
+		componentCount = count;
+
+		for (int i = 0; i < count; i++) {
+			measureComponent(i);
+		}
+		if (plan.alignmentPoints) {
+			horizontalAlignmentCount = sortDistinct(horizontalAlignmentPoints, 2 * count);
+			verticalAlignmentCount = sortDistinct(verticalAlignmentPoints, 2 * count);
+		}
+		if (plan.distances) {
+			int distanceCount = getDistances(horizontalAlignmentPoints, horizontalAlignmentCount, 0);
+			distanceCount = getDistances(verticalAlignmentPoints, verticalAlignmentCount, distanceCount);
+			distinctDistanceCount = sortDistinct(distances, distanceCount);
+		}
+		if (plan.sizes) {
+			distinctAreaCount = sortDistinct(sizes, count);
+		}
+
+		if (plan.quadrantPositions) {
+			double[] xArr = symX.clone();
+			Arrays.sort(xArr);
+			xul = normalize(symX[UL], xArr[0], xArr[xArr.length - 1]);
+			xur = normalize(symX[UR], xArr[0], xArr[xArr.length - 1]);
+			xll = normalize(symX[LL], xArr[0], xArr[xArr.length - 1]);
+			xlr = normalize(symX[LR], xArr[0], xArr[xArr.length - 1]);
+
+			double[] yArr = symY.clone();
+			Arrays.sort(yArr);
+			yul = normalize(symY[UL], yArr[0], yArr[yArr.length - 1]);
+			yur = normalize(symY[UR], yArr[0], yArr[yArr.length - 1]);
+			yll = normalize(symY[LL], yArr[0], yArr[yArr.length - 1]);
+			ylr = normalize(symY[LR], yArr[0], yArr[yArr.length - 1]);
+		}
+	}
+
+	private double measure (AestheticMetricEnum metric) {
+		switch (metric) {
+			case BALANCE:
+				return measureBalance();
+			case EQUILIBRIUM:
+				return measureEquilibrium();
+			case SYMMETRY:
+				return measureSymmetry();
+			case SEQUENCE:
+				return measureSequence();
+			case COHESION:
+				return measureCohesion();
+			case UNITY:
+				return measureUnity();
+			case PROPORTION:
+				return measureProportion();
+			case SIMPLICITY:
+				return measureSimplicity();
+			case DENSITY:
+				return measureDensity();
+			case REGULARITY:
+				return measureRegularity();
+			case ECONOMY:
+				return measureEconomy();
+			case HOMOGENEITY:
+				return measureHomogeneity();
+			case RHYTHM:
+				return measureRhythm();
+			default:
+				throw new IllegalArgumentException("Unknown metric " + metric);
+		}
+	}
+
+	public double measureBalance () {
+		double bmVertical;
+		double bmHorizontal;
+		double wLeft = 0;
+		double wRight = 0;
+		double wTop = 0;
+		double wBottom = 0;
+
+		if (getSize() == 0) {
+			return 0;
+		}
+
+		// All have the same amount of elements so one for loop is enough
+		for (int i = 0; i < getSize(); i++) {
+			wLeft += leftAreas[i] / maxLeftArea;
+			wRight += rightAreas[i] / maxRightArea;
+			wTop += topAreas[i] / maxTopArea;
+			wBottom += bottomAreas[i] / maxBottomArea;
+		}
+
+		bmVertical = (wLeft - wRight) / Math.max(wLeft, wRight);
+		bmHorizontal = (wTop - wBottom) / Math.max(wTop, wBottom);
+		return 1 - ((Math.abs(bmVertical) + Math.abs(bmHorizontal)) / 2);
+	}
+
+	// Center of mass * Area equals out so result is always 0.
+	public double measureEquilibrium () {
+		double upperEmX = 0;
+		double emX = 0;
+		double upperEmY = 0;
+		double emY = 0;
+		double sumArea = 0;
+		for (int i = 0; i < getSize(); i++) {
+			upperEmX += (areas[i] * (centerXs[i] - frameWidth / 2d));
+			upperEmY += (areas[i] * (centerYs[i] - frameHeight / 2d));
+			sumArea += areas[i];
+		}
+		emX = (2 * upperEmX) / (getSize() * frameWidth * sumArea);
+		emY = (2 * upperEmY) / (getSize() * frameHeight * sumArea);
+		return 1 - ((Math.abs(emX) + Math.abs(emY)) / 2);
+	}
+
+	// Is it worth it? This much calculation just to see if it is symmetric or not?
+	public double measureSymmetry () {
+		// Normalize values for equation
+		double[] bArr = symB.clone();
+		Arrays.sort(bArr);
+		double bul = normalize(symB[UL], bArr[0], bArr[bArr.length - 1]);
+		double bur = normalize(symB[UR], bArr[0], bArr[bArr.length - 1]);
+		double bll = normalize(symB[LL], bArr[0], bArr[bArr.length - 1]);
+		double blr = normalize(symB[LR], bArr[0], bArr[bArr.length - 1]);
+
+		double[] hArr = symH.clone();
+		Arrays.sort(hArr);
+		double hul = normalize(symH[UL], hArr[0], hArr[hArr.length - 1]);
+		double hur = normalize(symH[UR], hArr[0], hArr[hArr.length - 1]);
+		double hll = normalize(symH[LL], hArr[0], hArr[hArr.length - 1]);
+		double hlr = normalize(symH[LR], hArr[0], hArr[hArr.length - 1]);
+
+		double[] tArr = symTheta.clone();
+		Arrays.sort(tArr);
+		double tul = normalize(symTheta[UL], tArr[0], tArr[tArr.length - 1]);
+		double tur = normalize(symTheta[UR], tArr[0], tArr[tArr.length - 1]);
+		double tll = normalize(symTheta[LL], tArr[0], tArr[tArr.length - 1]);
+		double tlr = normalize(symTheta[LR], tArr[0], tArr[tArr.length - 1]);
+
+		double[] rArr = symR.clone();
+		Arrays.sort(rArr);
+		double rul = normalize(symR[UL], rArr[0], rArr[rArr.length - 1]);
+		double rur = normalize(symR[UR], rArr[0], rArr[rArr.length - 1]);
+		double rll = normalize(symR[LL], rArr[0], rArr[rArr.length - 1]);
+		double rlr = normalize(symR[LR], rArr[0], rArr[rArr.length - 1]);
+
+		double symVertical = (Math.abs(xul - xur) + Math.abs(xll - xlr) + Math.abs(yul - yur) + Math.abs(yll - ylr) + Math.abs(hul - hur) + Math.abs(hll - hlr) + Math.abs(bul - bur) + Math.abs(bll - blr) + Math.abs(tul - tur) + Math.abs(tll - tlr) + Math.abs(rul - rur) + Math.abs(rll - rlr)) / 12d;
+		double symHorizontal = (Math.abs(xul - xll) + Math.abs(xur - xlr) + Math.abs(yul - yll) + Math.abs(yur - ylr) + Math.abs(hul - hll) + Math.abs(hur - hlr) + Math.abs(bul - bll) + Math.abs(bur - blr) + Math.abs(tul - tll) + Math.abs(tur - tlr) + Math.abs(rul - rll) + Math.abs(rur - rlr)) / 12d;
+		double symRadial = (Math.abs(xul - xlr) + Math.abs(xur - xll) + Math.abs(yul - ylr) + Math.abs(yur - yll) + Math.abs(hul - hlr) + Math.abs(hur - hll) + Math.abs(bul - blr) + Math.abs(bur - bll) + Math.abs(tul - tlr) + Math.abs(tur - tll) + Math.abs(rul - rlr) + Math.abs(rur - rll)) / 12d;
+
+		return 1 - (Math.abs(symVertical) + Math.abs(symHorizontal) + Math.abs(symRadial)) / 3d;
+	}
+
+	public double measureSequence () {
+		// The areas are whole numbers, so their sums are exact in any order
+		double wul = 4 * symArea[UL];
+		double wur = 3 * symArea[UR];
+		double wll = 2 * symArea[LL];
+		double wlr = symArea[LR];
+		double[] wArray = {wul, wur, wll, wlr};
+		Arrays.sort(wArray);
+		int vul = indexOf(wArray, wul) + 1;
+		int vur = indexOf(wArray, wur) + 1;
+		int vll = indexOf(wArray, wll) + 1;
+		int vlr = indexOf(wArray, wlr) + 1;
+
+		int absQjMinusVj = Math.abs(4 - vul);
+		absQjMinusVj += Math.abs(3 - vur);
+		absQjMinusVj += Math.abs(2 - vll);
+		absQjMinusVj += Math.abs(1 - vlr);
+
+		return 1 - absQjMinusVj / 8d;
+	}
+
+	public double measureCohesion () {
+		double cmFL;
+		double cmLO;
+		double fi = 0;
+		double ti;
+		for (int i = 0; i < getSize(); i++) {
+			if (height(i) <= 0 || width(i) <= 0) {
+				continue;
+			}
+			ti = ((double) height(i) / width(i)) / (frameHeight / frameWidth);
+			fi += ti <= 1 ? ti : 1 / ti;
+		}
+		double tFL = (frameHeight / frameWidth) / (screenHeight / screenWidth);
+		cmFL = tFL <= 1 ? tFL : 1 / tFL;
+		cmLO = fi / getSize();
+		return (Math.abs(cmFL) + Math.abs(cmLO)) / 2d;
+	}
+
+	// UMSpace still not clear.
+	public double measureUnity () {
+		double umForm = 1 - (distinctAreaCount - 1d) / getSize();
+		// UMSpace = 1 - (areaLayout - totalArea) / (areaFrame - totalArea) which is 0 in our case
+		// 1 - (numberOfSizes - 1) / getSize()
+		return umForm;
+	}
+
+	public double measureProportion () {
+		double pmObject = 0;
+		double pmLayout = 0;
+
+		for (int i = 0; i < getSize(); i++) {
+			double ri = (double) height(i) / width(i);
+			double pi = ri <= 1 ? ri : 1 / ri;
+			pmObject += 1 - closestRatioDistance(pi) / 0.5;
+		}
+		pmObject = pmObject / getSize();
+
+		double rl = frameHeight / frameWidth; // Assuming layout is as big as frame
+		double pl = rl <= 1 ? rl : 1 / rl;
+		pmLayout = 1 - closestRatioDistance(pl) / 0.5;
+
+		return (Math.abs(pmObject) + Math.abs(pmLayout)) / 2d;
+	}
+
+	public double measureSimplicity () {
+		return 3d / (verticalAlignmentCount + horizontalAlignmentCount + getSize());
+	}
+
+	// Not Applicable
+	public double measureDensity () {
+		// TODO : 1 - (totalArea / totalArea)
+		return 0;
+	}
+
+	public double measureRegularity () {
+		double rmAlignment = 1 - (verticalAlignmentCount + horizontalAlignmentCount) / (2d * getSize());
+		double rmSpacing = getSize() == 1 ? 1 : 1 - (distinctDistanceCount - 1) / (2d * getSize() - 1);
+
+		return (Math.abs(rmAlignment) + Math.abs(rmSpacing)) / 2d;
+	}
+
+	public double measureEconomy () {
+		return 1d / distinctAreaCount;
+	}
+
+	/**
+	 * Hm = (1 - Ht)^2
+	 * Ht = (sum j of |n/4 - nj| / (n/4)) / 6
+	 * where j is the quadrant upperLeft, upperRight, lowerLeft, lowerRight
+	 * and n is the number of elements
+	 *
+	 * @return
+	 */
+	public double measureHomogeneity () {
+		double ht = Math.abs(getSize() / 4d - quadrantCounts[UL]) / (getSize() / 4d);
+		ht += Math.abs(getSize() / 4d - quadrantCounts[UR]) / (getSize() / 4d);
+		ht += Math.abs(getSize() / 4d - quadrantCounts[LL]) / (getSize() / 4d);
+		ht += Math.abs(getSize() / 4d - quadrantCounts[LR]) / (getSize() / 4d);
+		ht = ht / 6d;
+		return Math.pow(1 - ht, 2);
+	}
+
+	public double measureRhythm () {
+		double[] aArr = symArea.clone();
+		Arrays.sort(aArr);
+		double aul = normalize(symArea[UL], aArr[0], aArr[aArr.length - 1]);
+		double aur = normalize(symArea[UR], aArr[0], aArr[aArr.length - 1]);
+		double all = normalize(symArea[LL], aArr[0], aArr[aArr.length - 1]);
+		double alr = normalize(symArea[LR], aArr[0], aArr[aArr.length - 1]);
+
+		double rhmX = (Math.abs(xul - xur) + Math.abs(xul - xlr) + Math.abs(xul - xll) + Math.abs(xur - xlr) + Math.abs(xur - xll) + Math.abs(xlr - xll)) / 6d;
+		double rhmY = (Math.abs(yul - yur) + Math.abs(yul - ylr) + Math.abs(yul - yll) + Math.abs(yur - ylr) + Math.abs(yur - yll) + Math.abs(ylr - yll)) / 6d;
+		double rhmArea = (Math.abs(aul - aur) + Math.abs(aul - alr) + Math.abs(aul - all) + Math.abs(aur - alr) + Math.abs(aur - all) + Math.abs(alr - all)) / 6d;
+		return 1 - (Math.abs(rhmX) + Math.abs(rhmY) + Math.abs(rhmArea)) / 3d;
+	}
+
+	public double measureOrderAndComplexity (double orderAndComplexityNumber) {
+		return orderAndComplexityNumber / 13d;
+	}
+
+	/**
+	 * Copies the bounds of the components of the tree into treeRectangles, from left to right.
+	 */
+	private void traverseToLeafNodes (Layoutable node) {
+		if (node instanceof LayoutContainer) {
+			for (Layoutable child : ((LayoutContainer) node).getChildren()) {
+				traverseToLeafNodes(child);
+			}
+		}
+		if (node instanceof LayoutComponent) {
+			if (treeRectangles.length < 4 * (componentCount + 1)) {
+				treeRectangles = Arrays.copyOf(treeRectangles, 2 * treeRectangles.length);
+			}
+			int offset = 4 * componentCount++;
+			treeRectangles[offset] = node.getAssignedX();
+			treeRectangles[offset + 1] = node.getAssignedY();
+			treeRectangles[offset + 2] = node.getAssignedWidth();
+			treeRectangles[offset + 3] = node.getAssignedHeight();
+		}
+	}
+
+	/**
+	 * Collects everything the measures need from one component.
+	 */
+	private void measureComponent (int node) {
+		if (plan.alignmentPoints) {
+			findAligmentPoints(node);
+		}
+		if (plan.sideAreas) {
+			findLeftAreaOfComponent(node);
+			findRightAreaOfComponent(node);
+			findTopAreaOfComponent(node);
+			findBottomAreaOfComponent(node);
+		}
+		if (plan.quadrants) {
+			addSymmetryData(placeComponentInQuadrant(node), node);
+		}
+		if (plan.centers) {
+			areas[node] = Math.abs((double) (width(node) * height(node)));
+			centerXs[node] = x(node) + (width(node) / 2d);
+			centerYs[node] = y(node) + (height(node) / 2d);
+		}
+		if (plan.sizes) {
+			sizes[node] = ((long) width(node) << 32) | (height(node) & 0xffffffffL);
+		}
+	}
+
+	/**
+	 * this method finds the quadrant of a component
+	 * ___________
+	 * |    |    |
+	 * |    |  X |
+	 * |____|____|
+	 *
+	 * @param node - Index of the component that we try to place the quadrant on
+	 * @return the quadrant, UL, UR, LL or LR
+	 */
+	private int placeComponentInQuadrant (int node) {
+		if (x(node) + width(node) / 2d <= (frameWidth / 2d)) {
+			// Center of node is on the left
+			if (y(node) + height(node) / 2d < frameHeight / 2d) {
+				// Center of node is on the top
+				return UL;
+			} else {
+				// Center of node is on the bottom
+				return LL;
+			}
+		} else {
+			// Center of node is on the right
+			if (y(node) + height(node) / 2d < frameHeight / 2d) {
+				// Center of node is on the top
+				return UR;
+			} else {
+				// Center of node is on the bottom
+				return LR;
+			}
+		}
+	}
+
+	/**
+	 * Adds the component to the symmetry data of its quadrant. The components of a quadrant are
+	 * added in the order of the tree.
+	 */
+	private void addSymmetryData (int quadrant, int node) {
+		quadrantCounts[quadrant]++;
+		symArea[quadrant] += (width(node) * height(node));
+		if (!plan.quadrantPositions) {
+			return;
+		}
+		double xijMinusXc = x(node) + (width(node) / 2d) - (frameWidth / 2d);
+		symX[quadrant] += Math.abs(xijMinusXc);
+
+		double yijMinusYc = y(node) + (height(node) / 2d) - (frameHeight / 2d);
+		symY[quadrant] += Math.abs(yijMinusYc);
+		if (!plan.quadrantShapes) {
+			return;
+		}
+
+		symB[quadrant] += width(node);
+
+		symH[quadrant] += height(node);
+
+		symTheta[quadrant] += Math.abs(yijMinusYc / xijMinusXc);
+
+		symR[quadrant] += Math.sqrt(Math.pow(xijMinusXc, 2) + Math.pow(yijMinusYc, 2));
+	}
+
+	/**
+	 * this method returns the component's area with respect to left side of the screen
+	 * ___________
+	 * |    |    |
+	 * |  X |    |
+	 * |____|____|
+	 *
+	 * @param node - Index of the component that we try to find the area of
+	 */
+	private void findLeftAreaOfComponent (int node) {
+		double area;
+		if (x(node) >= (frameWidth / 2d)) {
+			area = 0d;
+		} else if (x(node) + width(node) >= (frameWidth / 2d)) {
+			area = Math.abs((frameWidth / 2d - x(node)) * height(node));
+		} else {
+			area = Math.abs((double) (width(node) * height(node)));
+		}
+		leftAreas[node] = area;
+		maxLeftArea = Math.max(maxLeftArea, area);
+	}
+
+	/**
+	 * this method returns the component's area with respect to right side of the screen
+	 * ___________
+	 * |    |    |
+	 * |    |  X |
+	 * |____|____|
+	 *
+	 * @param node - Index of the component that we try to find the area of
+	 */
+	private void findRightAreaOfComponent (int node) {
+		double area;
+		if (x(node) + width(node) <= (frameWidth / 2d)) {
+			area = 0d;
+		} else if (x(node) <= (frameWidth / 2d)) {
+			area = Math.abs((x(node) + width(node) - frameWidth / 2d) * height(node));
+		} else {
+			area = Math.abs((double) (width(node) * height(node)));
+		}
+		rightAreas[node] = area;
+		maxRightArea = Math.max(maxRightArea, area);
+	}
+
+	/**
+	 * this method returns the component's area with respect to top side of the screen
+	 * __________
+	 * |    X   |
+	 * |--------|
+	 * |________|
+	 *
+	 * @param node - Index of the component that we try to find the area of
+	 */
+	private void findTopAreaOfComponent (int node) {
+		double area;
+		if (y(node) >= (frameHeight / 2d)) {
+			area = 0d;
+		} else if (y(node) + height(node) >= (frameHeight / 2d)) {
+			area = Math.abs((frameHeight / 2d - y(node)) * width(node));
+		} else {
+			area = Math.abs((double) (height(node) * width(node)));
+		}
+		topAreas[node] = area;
+		maxTopArea = Math.max(maxTopArea, area);
+	}
+
+	/**
+	 * this method returns the component's area with respect to top side of the screen
+	 * __________
+	 * |        |
+	 * |--------|
+	 * |____X___|
+	 *
+	 * @param node - Index of the component that we try to find the area of
+	 */
+	private void findBottomAreaOfComponent (int node) {
+		double area;
+		if (y(node) + height(node) <= (frameHeight / 2d)) {
+			area = 0d;
+		} else if (y(node) <= (frameHeight / 2d)) {
+			area = Math.abs((y(node) + height(node) - frameHeight / 2d) * width(node));
+		} else {
+			area = Math.abs((double) (height(node) * width(node)));
+		}
+		bottomAreas[node] = area;
+		maxBottomArea = Math.max(maxBottomArea, area);
+	}
+
+	/**
+	 * This method gets horizontal and vertical alignment points in a duplicated manner
+	 *
+	 * @param node
+	 */
+	private void findAligmentPoints (int node) {
+		horizontalAlignmentPoints[2 * node] = x(node);
+		horizontalAlignmentPoints[2 * node + 1] = x(node) + width(node);
+		verticalAlignmentPoints[2 * node] = y(node);
+		verticalAlignmentPoints[2 * node + 1] = y(node) + height(node);
+	}
+
+	/**
+	 * This method calculates distances of the organized alignment points into distances
+	 *
+	 * @param alignmentPoints - organizedAlignmentPoints
+	 * @param count           - the number of alignment points
+	 * @param offset          - the number of distances so far
+	 * @return the number of distances
+	 */
+	private int getDistances (int[] alignmentPoints, int count, int offset) {
+		for (int i = 1; i < count; i++) {
+			distances[offset++] = alignmentPoints[i] - alignmentPoints[i - 1];
+		}
+		return offset;
+	}
+
+	/**
+	 * Sorts the first count values and moves the unique ones to the front.
+	 *
+	 * @return the number of unique values
+	 */
+	private static int sortDistinct (int[] values, int count) {
+		Arrays.sort(values, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || values[i] != values[distinct - 1]) {
+				values[distinct++] = values[i];
+			}
+		}
+		return distinct;
+	}
+
+	private static int sortDistinct (long[] values, int count) {
+		Arrays.sort(values, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || values[i] != values[distinct - 1]) {
+				values[distinct++] = values[i];
+			}
+		}
+		return distinct;
+	}
+
+	/**
+	 * @return the smallest distance of the given ratio to one of the rectangleRatios
+	 */
+	private static double closestRatioDistance (double ratio) {
+		double distance = Math.abs(rectangleRatios[0] - ratio);
+		for (int i = 1; i < rectangleRatios.length; i++) {
+			distance = Math.min(distance, Math.abs(rectangleRatios[i] - ratio));
+		}
+		return distance;
+	}
+
+	/**
+	 * Same as List.indexOf for boxed values.
+	 */
+	private static int indexOf (double[] values, double value) {
+		for (int i = 0; i < values.length; i++) {
+			if (Double.compare(values[i], value) == 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int getSize () {
+		return componentCount;
+	}
+
+	private int x (int node) {
+		return rectangles[4 * node];
+	}
+
+	private int y (int node) {
+		return rectangles[4 * node + 1];
+	}
+
+	private int width (int node) {
+		return rectangles[4 * node + 2];
+	}
+
+	private int height (int node) {
+		return rectangles[4 * node + 3];
+	}
+
+	private void ensureCapacity (int count) {
+		if (leftAreas.length < count) {
+			int capacity = Math.max(count, 2 * leftAreas.length);
+			leftAreas = new double[capacity];
+			rightAreas = new double[capacity];
+			topAreas = new double[capacity];
+			bottomAreas = new double[capacity];
+			areas = new double[capacity];
+			centerXs = new double[capacity];
+			centerYs = new double[capacity];
+			sizes = new long[capacity];
+			horizontalAlignmentPoints = new int[2 * capacity];
+			verticalAlignmentPoints = new int[2 * capacity];
+			distances = new int[4 * capacity];
+		}
+	}
+
+	private void clearValues () {
+		maxLeftArea = 0;
+		maxRightArea = 0;
+		maxTopArea = 0;
+		maxBottomArea = 0;
+		Arrays.fill(quadrantCounts, 0);
+		Arrays.fill(symX, 0);
+		Arrays.fill(symY, 0);
+		Arrays.fill(symB, 0);
+		Arrays.fill(symH, 0);
+		Arrays.fill(symTheta, 0);
+		Arrays.fill(symR, 0);
+		Arrays.fill(symArea, 0);
+		xul = 0;
+		xur = 0;
+		xll = 0;
+		xlr = 0;
+		yul = 0;
+		yur = 0;
+		yll = 0;
+		ylr = 0;
+		frameWidth = 0;
+		frameHeight = 0;
+		horizontalAlignmentCount = 0;
+		verticalAlignmentCount = 0;
+		distinctDistanceCount = 0;
+		distinctAreaCount = 0;
+	}
+
+	public static double normalize (double i, double min, double max) {
+		return (i - min) / (max - min);
+	}
+
+	/**
+	 * The metrics a scorer computes, and the data it collects from the components for them.
+	 */
+	private static final class EvaluationPlan {
+		private final AestheticMetricEnum[] metrics;
+		private final boolean sideAreas;
+		private final boolean centers;
+		// The number and area of the components in each quadrant
+		private final boolean quadrants;
+		// The distances of the quadrants to the center
+		private final boolean quadrantPositions;
+		// The widths, heights, angles and radii of the quadrants
+		private final boolean quadrantShapes;
+		private final boolean alignmentPoints;
+		private final boolean distances;
+		private final boolean sizes;
+
+		private EvaluationPlan (WeightProfile weightProfile) {
+			List<AestheticMetricEnum> used = new ArrayList<>();
+			for (AestheticMetricEnum metric : AestheticMetricEnum.values()) {
+				if (weightProfile.isUsed(metric)) {
+					used.add(metric);
+				}
+			}
+			metrics = used.toArray(new AestheticMetricEnum[0]);
+			sideAreas = used.contains(AestheticMetricEnum.BALANCE);
+			centers = used.contains(AestheticMetricEnum.EQUILIBRIUM);
+			quadrantShapes = used.contains(AestheticMetricEnum.SYMMETRY);
+			quadrantPositions = quadrantShapes || used.contains(AestheticMetricEnum.RHYTHM);
+			quadrants = quadrantPositions || used.contains(AestheticMetricEnum.SEQUENCE) || used.contains(AestheticMetricEnum.HOMOGENEITY);
+			distances = used.contains(AestheticMetricEnum.REGULARITY);
+			alignmentPoints = distances || used.contains(AestheticMetricEnum.SIMPLICITY);
+			sizes = used.contains(AestheticMetricEnum.UNITY) || used.contains(AestheticMetricEnum.ECONOMY);
+		}
+	}
+}
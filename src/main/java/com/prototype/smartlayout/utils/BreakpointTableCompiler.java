@@ -0,0 +1,158 @@
+package com.prototype.smartlayout.utils;
+
+import com.prototype.smartlayout.model.BreakpointTable;
+import com.prototype.smartlayout.model.LayoutContainer;
+import com.prototype.smartlayout.model.RangeIndex;
+import com.prototype.smartlayout.model.WidthHeightRange;
+import com.prototype.smartlayout.model.enums.DistributionStrategyEnum;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Offline compiler of {@link BreakpointTable}s. It sweeps a grid of window sizes and, at every
+ * grid point, does what SmartLayout does on a resize: the candidates are laid out into a rectangle
+ * buffer and scored like {@link AestheticLayoutSelector} does, and the one with the highest score
+ * wins, the first one on ties. Like SmartLayout, the candidates are all layouts of the tree by
+ * default, or only the ones that fit the size when the table is compiled for the "show only
+ * feasible layouts" mode. The rows of the grid are computed in parallel. Laying out into a buffer
+ * leaves the tree alone, so the workers share a single tree.
+ */
+@Log4j2
+public class BreakpointTableCompiler {
+	private final Supplier<LayoutContainer> treeFactory;
+	private final WeightProfile weightProfile;
+	private final boolean feasibleOnly;
+	private final ThreadLocal<AestheticScorer> scorers;
+
+	/**
+	 * Scores all layouts with the weights of {@link AestheticMeasureUtil#getWeightProfile()}.
+	 */
+	public BreakpointTableCompiler (Supplier<LayoutContainer> treeFactory) {
+		this(treeFactory, AestheticMeasureUtil.getWeightProfile(), false);
+	}
+
+	/**
+	 * @param treeFactory   creates the tree, it is called once per compilation
+	 * @param weightProfile the weights of the scores, which the table is only used with
+	 * @param feasibleOnly  whether only the layouts that fit a size are scored, or all of them
+	 */
+	public BreakpointTableCompiler (Supplier<LayoutContainer> treeFactory, WeightProfile weightProfile, boolean feasibleOnly) {
+		this.treeFactory = treeFactory;
+		this.weightProfile = weightProfile;
+		this.feasibleOnly = feasibleOnly;
+		scorers = ThreadLocal.withInitial(() -> new AestheticScorer(weightProfile));
+	}
+
+	/**
+	 * Compiles the table for the sizes [minWidth, maxWidth] x [minHeight, maxHeight] on the common
+	 * pool.
+	 */
+	public BreakpointTable compile (int minWidth, int maxWidth, int widthStep, int minHeight, int maxHeight, int heightStep) {
+		return compile(minWidth, maxWidth, widthStep, minHeight, maxHeight, heightStep, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Compiles the table for the sizes [minWidth, maxWidth] x [minHeight, maxHeight]. The grid points
+	 * are widthStep and heightStep pixels apart, and the choice at a grid point is used for the
+	 * sizes up to the next one.
+	 *
+	 * @param pool the pool that runs the sweep
+	 * @return the compiled table
+	 */
+	public BreakpointTable compile (int minWidth, int maxWidth, int widthStep, int minHeight, int maxHeight, int heightStep, ForkJoinPool pool) {
+		if (widthStep <= 0 || heightStep <= 0 || maxWidth < minWidth || maxHeight < minHeight) {
+			throw new IllegalArgumentException("Invalid grid: " + minWidth + "-" + maxWidth + "/" + widthStep + " x " + minHeight + "-" + maxHeight + "/" + heightStep);
+		}
+		int[] widths = IntStream.iterate(minWidth, w -> w + widthStep).limit((maxWidth - minWidth) / widthStep + 1).toArray();
+		int[] heights = IntStream.iterate(minHeight, h -> h + heightStep).limit((maxHeight - minHeight) / heightStep + 1).toArray();
+		LayoutContainer root = treeFactory.get();
+		// Built before the sweep, so the workers only read them.
+		Vector<WidthHeightRange> ranges = root.getRanges();
+		RangeIndex rangeIndex = root.getRangeIndex();
+
+		long startTime = System.nanoTime();
+		int[][] choices = new int[heights.length][];
+		try {
+			pool.submit(() -> IntStream.range(0, heights.length).parallel()
+					.forEach(row -> choices[row] = compileRow(root, ranges, rangeIndex, widths, heights[row]))).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Breakpoint table compilation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Breakpoint table compilation failed", e.getCause());
+		}
+		BreakpointTable table = BreakpointTable.fromGrid(root, weightProfile, feasibleOnly, widths, heights, choices, widths[widths.length - 1] + widthStep, heights[heights.length - 1] + heightStep);
+		log.debug("Compiled " + widths.length * heights.length + " grid points into " + table.getBandCount() + " bands and " + table.getRunCount()
+				+ " runs in " + (System.nanoTime() - startTime) / 1000000 + " ms.");
+		return table;
+	}
+
+	private int[] compileRow (LayoutContainer root, Vector<WidthHeightRange> ranges, RangeIndex rangeIndex, int[] widths, int h) {
+		AestheticScorer scorer = scorers.get();
+		int[] allIndices = IntStream.range(0, ranges.size()).toArray();
+		int leafCount = root.getLeafCount();
+		int[] rectangles = new int[4 * leafCount];
+		int[] row = new int[widths.length];
+		for (int column = 0; column < widths.length; column++) {
+			int w = widths[column];
+			int best = -1;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (int index : feasibleOnly ? rangeIndex.findFeasibleIndices(w, h) : allIndices) {
+				// Laid out and measured like AestheticLayoutSelector does, so an infeasible layout that
+				// stops at a container is scored the same way.
+				Arrays.fill(rectangles, 0);
+				root.layoutInto(0, 0, w, h, ranges.get(index), rectangles);
+				double score = scorer.measureAesthetics(rectangles, leafCount, w, h, false);
+				if (best < 0 || Double.compare(score, bestScore) > 0) {
+					best = index;
+					bestScore = score;
+				}
+			}
+			row[column] = best;
+		}
+		return row;
+	}
+
+	/**
+	 * Compiles the table of a test case from TestCaseUtils and writes it to a file. The weights and
+	 * the distribution are read from the smartlayout.weights and smartlayout.distribution properties
+	 * like SmartLayout does, and "feasible" compiles the table for the "show only feasible layouts"
+	 * mode.
+	 *
+	 * <p>Arguments: testNumber outputFile [minWidth maxWidth widthStep minHeight maxHeight
+	 * heightStep] [feasible]
+	 */
+	public static void main (String[] args) throws IOException {
+		boolean feasibleOnly = args.length > 0 && "feasible".equals(args[args.length - 1]);
+		int gridArgs = feasibleOnly ? args.length - 1 : args.length;
+		if (gridArgs != 2 && gridArgs != 8) {
+			System.err.println("Usage: BreakpointTableCompiler testNumber outputFile [minWidth maxWidth widthStep minHeight maxHeight heightStep] [feasible]");
+			return;
+		}
+		int testNumber = Integer.parseInt(args[0]);
+		int[] grid = gridArgs == 8
+				? IntStream.range(2, 8).map(i -> Integer.parseInt(args[i])).toArray()
+				: new int[] {200, 1920, 10, 200, 1080, 10};
+		String distribution = System.getProperty("smartlayout.distribution");
+		if (distribution != null) {
+			LayoutContainer.setDefaultDistributionStrategy(DistributionStrategyEnum.valueOf(distribution));
+		}
+		String weights = System.getProperty("smartlayout.weights");
+		WeightProfile weightProfile = weights != null ? WeightProfile.parse(weights) : WeightProfile.DEFAULT;
+		BreakpointTableCompiler compiler = new BreakpointTableCompiler(() -> {
+			TestCaseUtils.jComponentMap = new HashMap<>();
+			return TestCaseUtils.executeTest(testNumber);
+		}, weightProfile, feasibleOnly);
+		BreakpointTable table = compiler.compile(grid[0], grid[1], grid[2], grid[3], grid[4], grid[5]);
+		table.write(Paths.get(args[1]));
+		log.info("Wrote breakpoint table with " + table.getBandCount() + " bands and " + table.getRunCount() + " runs to " + args[1]);
+	}
+}
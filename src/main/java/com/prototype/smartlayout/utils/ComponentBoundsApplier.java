@@ -0,0 +1,128 @@
+package com.prototype.smartlayout.utils;
+
+import com.prototype.smartlayout.model.LayoutComponent;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.border.Border;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Copies the bounds of the laid out components to their Swing components. The rectangles that
+ * were applied last time are kept, so only the components that moved, were resized or changed
+ * feasibility are touched, and all of them in a single task on the event dispatch thread. Swing
+ * components that are not given anymore are forgotten, so they are not kept reachable.
+ */
+@Log4j2
+public class ComponentBoundsApplier {
+	private static final Border FEASIBLE_BORDER = BorderFactory.createLineBorder(Color.GREEN);
+	private static final Border INFEASIBLE_BORDER = BorderFactory.createLineBorder(Color.RED);
+
+	// Only read and written by the thread that calls apply
+	private final Map<JComponent, Applied> applied = new IdentityHashMap<>();
+
+	/**
+	 * Compares the bounds of the given components with the ones applied last time and updates the
+	 * Swing components that changed. The changes are collected right away, so the layout may change
+	 * again before they are applied. The applied bounds of the Swing components that are not in the
+	 * given map are dropped.
+	 *
+	 * @param components the laid out components and their Swing components
+	 * @return the number of Swing components that are updated
+	 */
+	public int apply (Map<LayoutComponent, JComponent> components) {
+		List<JComponent> changed = new ArrayList<>();
+		List<Applied> changes = new ArrayList<>();
+		int given = 0;
+		for (Map.Entry<LayoutComponent, JComponent> entry : components.entrySet()) {
+			LayoutComponent lComponent = entry.getKey();
+			JComponent jComponent = entry.getValue();
+			if (lComponent == null) {
+				continue;
+			}
+			given++;
+			Applied last = applied.get(jComponent);
+			if (last != null && last.matches(lComponent)) {
+				continue;
+			}
+			Applied next = new Applied(lComponent, last == null);
+			applied.put(jComponent, next);
+			changed.add(jComponent);
+			changes.add(next);
+		}
+		if (applied.size() > given) {
+			// Every given Swing component is in applied by now, so the others were removed.
+			Set<JComponent> current = Collections.newSetFromMap(new IdentityHashMap<>());
+			components.forEach((lComponent, jComponent) -> {
+				if (lComponent != null) {
+					current.add(jComponent);
+				}
+			});
+			applied.keySet().retainAll(current);
+		}
+		log.trace("Updating " + changed.size() + " of " + components.size() + " components.");
+		if (changed.isEmpty()) {
+			return 0;
+		}
+		Runnable task = () -> {
+			for (int i = 0; i < changed.size(); i++) {
+				changes.get(i).applyTo(changed.get(i));
+			}
+		};
+		if (SwingUtilities.isEventDispatchThread()) {
+			task.run();
+		} else {
+			SwingUtilities.invokeLater(task);
+		}
+		return changed.size();
+	}
+
+	/**
+	 * Forgets the applied bounds, so the next apply updates every component.
+	 */
+	public void clear () {
+		applied.clear();
+	}
+
+	private static class Applied {
+		private final int x;
+		private final int y;
+		private final int width;
+		private final int height;
+		private final boolean feasible;
+		// The tooltip never changes, so it is only set the first time.
+		private final String toolTip;
+
+		private Applied (LayoutComponent component, boolean first) {
+			x = component.getAssignedX();
+			y = component.getAssignedY();
+			width = component.getAssignedWidth();
+			height = component.getAssignedHeight();
+			feasible = component.isFeasible();
+			toolTip = first ? component.getLabel() : null;
+		}
+
+		private boolean matches (LayoutComponent component) {
+			return x == component.getAssignedX() && y == component.getAssignedY() && width == component.getAssignedWidth()
+					&& height == component.getAssignedHeight() && feasible == component.isFeasible();
+		}
+
+		private void applyTo (JComponent jComponent) {
+			jComponent.setBounds(x, y, width, height);
+			Border border = feasible ? FEASIBLE_BORDER : INFEASIBLE_BORDER;
+			if (jComponent.getBorder() != border) {
+				jComponent.setBorder(border);
+			}
+			if (toolTip != null) {
+				jComponent.setToolTipText(toolTip);
+			}
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package com.prototype.smartlayout.utils;
+
+import com.prototype.smartlayout.model.enums.DistributionStrategyEnum;
+import com.prototype.smartlayout.model.enums.SizeEnum;
+import java.util.Arrays;
+import java.util.Random;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Checks that {@link LayoutContainerUtils#balanceDistribution(int[], int[], int)} gives exactly
+ * the distribution of the original pixel by pixel loop, which is kept here as the reference, and
+ * measures both of them. Then checks the basic guarantees of the other strategies of
+ * {@link DistributionStrategyEnum} and measures all of them with reused buffers.
+ *
+ * <p>Arguments: [randomCases seed]
+ */
+@Log4j2
+public class DistributionBenchmark {
+	private static final int ROUNDS = 5;
+	// Reused by the checks and never cleared, so leftovers of earlier calls would show up.
+	private static final int[] BUFFER = new int[16];
+
+	public static void main (String[] args) {
+		int randomCases = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+
+		int cases = checkExhaustive() + checkRandom(randomCases, new Random(seed));
+		log.info("Water filling matches the pixel loop on " + cases + " distributions.");
+
+		// Up to the width of a 4K screen on top of the mins, for components of several sizes side by side.
+		for (SizeEnum size : new SizeEnum[] {SizeEnum.SMALL, SizeEnum.LARGE_SLACK, SizeEnum.GIGANTIC}) {
+			for (int count : new int[] {2, 4, 8}) {
+				int[] minValues = new int[count];
+				int[] maxValues = new int[count];
+				Arrays.fill(minValues, size.min);
+				Arrays.fill(maxValues, size.max);
+				// Slightly different children, so the order matters.
+				for (int i = 0; i < count; i++) {
+					minValues[i] += i * 7;
+				}
+				measure(size + " x " + count, minValues, maxValues, 3840);
+			}
+		}
+		for (DistributionStrategyEnum strategy : DistributionStrategyEnum.values()) {
+			measure(strategy, 8, 3840);
+		}
+	}
+
+	/**
+	 * All distributions of up to three children with small values, including mins above the maxes
+	 * and totals below the sum of the mins.
+	 */
+	private static int checkExhaustive () {
+		int cases = 0;
+		for (int count = 1; count <= 3; count++) {
+			int[] values = new int[2 * count];
+			int combinations = (int) Math.pow(5, values.length);
+			for (int combination = 0; combination < combinations; combination++) {
+				int rest = combination;
+				for (int i = 0; i < values.length; i++) {
+					values[i] = rest % 5;
+					rest /= 5;
+				}
+				int[] minValues = Arrays.copyOfRange(values, 0, count);
+				int[] maxValues = Arrays.copyOfRange(values, count, 2 * count);
+				for (int total = 0; total <= 5 * count + 3; total++) {
+					check(minValues, maxValues, total);
+					cases++;
+				}
+			}
+		}
+		return cases;
+	}
+
+	private static int checkRandom (int cases, Random random) {
+		for (int c = 0; c < cases; c++) {
+			int count = 1 + random.nextInt(12);
+			int[] minValues = new int[count];
+			int[] maxValues = new int[count];
+			int sum = 0;
+			for (int i = 0; i < count; i++) {
+				// Few distinct values, so there are many ties.
+				minValues[i] = random.nextBoolean() ? 10 * random.nextInt(10) : random.nextInt(300);
+				maxValues[i] = random.nextInt(10) == 0 ? minValues[i] - random.nextInt(5) : minValues[i] + random.nextInt(random.nextBoolean() ? 20 : 2000);
+				sum += minValues[i];
+			}
+			check(minValues, maxValues, random.nextInt(sum + 3000));
+			checkStrategies(minValues, maxValues, random.nextInt(sum + 3000));
+		}
+		return cases;
+	}
+
+	private static void check (int[] minValues, int[] maxValues, int total) {
+		int[] expected = pixelBalanceDistribution(minValues, maxValues, total);
+		int[] actual = LayoutContainerUtils.balanceDistribution(minValues, maxValues, total);
+		DistributionStrategyEnum.BALANCE.distribute(minValues, maxValues, minValues.length, total, BUFFER);
+		if (!Arrays.equals(expected, actual) || !Arrays.equals(expected, Arrays.copyOf(BUFFER, minValues.length))) {
+			throw new IllegalStateException("Distribution of " + total + " over mins " + Arrays.toString(minValues) + " and maxes " + Arrays.toString(maxValues)
+					+ " is " + Arrays.toString(actual) + " instead of " + Arrays.toString(expected));
+		}
+	}
+
+	/**
+	 * FAIR gives every child at least its min when the total allows it and never more than its max,
+	 * WEIGHT_MAX uses exactly the total.
+	 */
+	private static void checkStrategies (int[] minValues, int[] maxValues, int total) {
+		int count = minValues.length;
+		int minSum = Arrays.stream(minValues).sum();
+		DistributionStrategyEnum.FAIR.distribute(minValues, maxValues, count, total, BUFFER);
+		int sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += BUFFER[i];
+			boolean belowMin = total >= minSum && BUFFER[i] < minValues[i];
+			boolean aboveMax = minValues[i] <= maxValues[i] && BUFFER[i] > maxValues[i];
+			if (belowMin || aboveMax) {
+				throw new IllegalStateException("FAIR distribution of " + total + " over mins " + Arrays.toString(minValues) + " and maxes "
+						+ Arrays.toString(maxValues) + " is " + Arrays.toString(Arrays.copyOf(BUFFER, count)));
+			}
+		}
+		if (total >= minSum && sum > total) {
+			throw new IllegalStateException("FAIR distribution of " + total + " uses " + sum);
+		}
+		DistributionStrategyEnum.WEIGHT_MAX.distribute(minValues, maxValues, count, total, BUFFER);
+		sum = Arrays.stream(BUFFER, 0, count).sum();
+		if (Arrays.stream(maxValues).sum() > 0 && sum != total) {
+			throw new IllegalStateException("WEIGHT_MAX distribution of " + total + " uses " + sum);
+		}
+	}
+
+	private static void measure (String name, int[] minValues, int[] maxValues, int extra) {
+		int sum = Arrays.stream(minValues).sum();
+		int maxTotal = sum + extra;
+		long pixelTime = Long.MAX_VALUE;
+		long waterTime = Long.MAX_VALUE;
+		// Keeps the results alive, so the calls cannot be optimized away.
+		long checksum = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			for (int total = sum; total <= maxTotal; total++) {
+				checksum += pixelBalanceDistribution(minValues, maxValues, total)[0];
+			}
+			pixelTime = Math.min(pixelTime, System.nanoTime() - startTime);
+			startTime = System.nanoTime();
+			for (int total = sum; total <= maxTotal; total++) {
+				checksum += LayoutContainerUtils.balanceDistribution(minValues, maxValues, total)[0];
+			}
+			waterTime = Math.min(waterTime, System.nanoTime() - startTime);
+		}
+		for (int total = sum; total <= maxTotal; total++) {
+			check(minValues, maxValues, total);
+		}
+		int calls = extra + 1;
+		log.info(String.format("%-18s totals %4d-%4d: pixel loop %8.1f us/call, water filling %6.2f us/call, %6.1fx faster", name, sum, maxTotal,
+				pixelTime / 1000.0 / calls, waterTime / 1000.0 / calls, (double) pixelTime / Math.max(waterTime, 1)));
+		log.trace("Checksum: " + checksum);
+	}
+
+	/**
+	 * Times a strategy over all totals from the sum of the mins to the given extra above it, for
+	 * children of mixed sizes, through the interface with a reused buffer, like a layout does.
+	 */
+	private static void measure (DistributionStrategyEnum strategy, int count, int extra) {
+		SizeEnum[] sizes = SizeEnum.values();
+		int[] minValues = new int[count];
+		int[] maxValues = new int[count];
+		for (int i = 0; i < count; i++) {
+			minValues[i] = sizes[i % sizes.length].min;
+			maxValues[i] = sizes[i % sizes.length].max;
+		}
+		int[] distribution = new int[count];
+		int sum = Arrays.stream(minValues).sum();
+		int maxTotal = sum + extra;
+		long time = Long.MAX_VALUE;
+		long checksum = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			for (int total = sum; total <= maxTotal; total++) {
+				strategy.distribute(minValues, maxValues, count, total, distribution);
+				checksum += distribution[0];
+			}
+			time = Math.min(time, System.nanoTime() - startTime);
+		}
+		log.info(String.format("%-10s x %d totals %4d-%4d: %6.3f us/call", strategy, count, sum, maxTotal, time / 1000.0 / (extra + 1)));
+		log.trace("Checksum: " + checksum);
+	}
+
+	/**
+	 * The original strategyBalance distribution, one pixel at a time.
+	 */
+	private static int[] pixelBalanceDistribution (int[] minValues, int[] maxValues, int total) {
+		int[] distribution = new int[minValues.length];
+		int remaining = total;
+		for (int i = 0; i < minValues.length; i++) {
+			distribution[i] = minValues[i];
+			remaining -= minValues[i];
+			if (remaining <= 0) {
+				break;
+			}
+		}
+		if (minValues.length == 0) {
+			return distribution;
+		}
+		ArrayIndexComparator comparator = new ArrayIndexComparator(distribution);
+		Integer[] indexOrder = comparator.createIndexArray();
+		Arrays.sort(indexOrder, comparator);
+
+		while (remaining > 0) {
+			if (distribution[indexOrder[0]] == maxValues[indexOrder[0]]) {
+				indexOrder = Arrays.copyOfRange(indexOrder, 1, indexOrder.length);
+			} else {
+				distribution[indexOrder[0]] = distribution[indexOrder[0]] + 1;
+				remaining--;
+				int p = 0;
+				int q = 1;
+				while (q < indexOrder.length && distribution[indexOrder[p]] > distribution[indexOrder[q]]) {
+					int temp = indexOrder[p];
+					indexOrder[p] = indexOrder[q];
+					indexOrder[q] = temp;
+					p = q;
+					q = p + 1;
+				}
+			}
+			if (indexOrder.length < 1) {
+				break;
+			}
+		}
+		return distribution;
+	}
+}
@@ -1,33 +1,377 @@
 package com.prototype.smartlayout.utils;
 
+import com.prototype.smartlayout.model.WidthHeightRange;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Vector;
 import lombok.extern.log4j.Log4j2;
 
 @Log4j2
 public class LayoutContainerUtils {
 
-	public static int distribute (int[] capacityValues, int[] distribution, int remaining, int amount, int i) {
-		distribution[i] += amount;
-		remaining -= amount;
-		// also subtract from values to notify
-		capacityValues[i] -= amount;
-		return remaining;
+	private static final ThreadLocal<BalanceBuffers> BALANCE_BUFFERS = ThreadLocal.withInitial(BalanceBuffers::new);
+
+	/**
+	 * Distribution of the BALANCE strategy, which acts like a water scale: every child first gets its
+	 * minimum, then the remaining pixels are added one by one to the child with the least value
+	 * until it is full or nothing is left.
+	 *
+	 * <p>Instead of handing out single pixels, the water level is raised over whole ranges of values
+	 * at once, so the cost does not depend on the number of pixels. The result is exactly the one of
+	 * adding single pixels to a list kept sorted by value and then index, where the child that just
+	 * got a pixel moves behind the others of its old value but stays in front of those of its new
+	 * value. While the level rises by one, the children at the level are served in list order and
+	 * end up in reverse order in front of the children that start at the next level. So between
+	 * two levels where a child joins or gets full, every level costs one pixel per child, and only
+	 * the parity of the number of levels matters for the order. A child is full when it is exactly at
+	 * its max, so a child whose min is above its max is never full. If the total is less than the sum
+	 * of the mins, the children after the one that used it up get 0.
+	 *
+	 * @param minValues the min width or height of each child
+	 * @param maxValues the max width or height of each child
+	 * @param total     the width or height to distribute
+	 * @return the size given to each child
+	 */
+	public static int[] balanceDistribution (int[] minValues, int[] maxValues, int total) {
+		int[] distribution = new int[minValues.length];
+		balanceDistribution(minValues, maxValues, minValues.length, total, distribution);
+		return distribution;
+	}
+
+	/**
+	 * Same as {@link #balanceDistribution(int[], int[], int)}, for the first count children, into
+	 * the given array. The work arrays are kept per thread, so nothing is allocated once they are
+	 * large enough.
+	 */
+	public static void balanceDistribution (int[] minValues, int[] maxValues, int count, int total, int[] distribution) {
+		int n = count;
+		Arrays.fill(distribution, 0, n, 0);
+		int remaining = total;
+		for (int i = 0; i < n; i++) {
+			distribution[i] = minValues[i];
+			remaining -= minValues[i];
+			if (remaining <= 0) {
+				return;
+			}
+		}
+		if (n == 0) {
+			return;
+		}
+		BalanceBuffers buffers = BALANCE_BUFFERS.get().ensureCapacity(n);
+
+		// The children by the level they join at, and by the level they get full at
+		long[] byStart = buffers.byStart;
+		long[] byMax = buffers.byMax;
+		int withMax = 0;
+		for (int i = 0; i < n; i++) {
+			byStart[i] = ((long) minValues[i] << 32) | i;
+			if (minValues[i] <= maxValues[i]) {
+				byMax[withMax++] = ((long) maxValues[i] << 32) | i;
+			}
+		}
+		Arrays.sort(byStart, 0, n);
+		Arrays.sort(byMax, 0, withMax);
+
+		// The children at the level in serving order. The order is reversed with a flag, and full
+		// children are only marked, so every level change costs O(1) apart from the joins.
+		int[] order = buffers.order;
+		int head = n;
+		int tail = n;
+		boolean reversed = false;
+		boolean[] full = buffers.full;
+		Arrays.fill(full, 0, n, false);
+		int active = 0;
+		int started = 0;
+		int filled = 0;
+		long level = byStart[0] >> 32;
+		while (true) {
+			while (started < n && byStart[started] >> 32 == level) {
+				int index = (int) byStart[started++];
+				if (reversed) {
+					order[--head] = index;
+				} else {
+					order[tail++] = index;
+				}
+				active++;
+			}
+			while (filled < withMax && byMax[filled] >> 32 == level) {
+				full[(int) byMax[filled++]] = true;
+				active--;
+			}
+			if (active == 0) {
+				if (started == n) {
+					log.trace("Layout's constraints exceeds max values for components!");
+					remaining = 0;
+					break;
+				}
+				level = byStart[started] >> 32;
+				continue;
+			}
+			long next = Math.min(started < n ? byStart[started] >> 32 : Long.MAX_VALUE, filled < withMax ? byMax[filled] >> 32 : Long.MAX_VALUE);
+			long levels = Math.min(next - level, remaining / active);
+			level += levels;
+			remaining -= (int) (levels * active);
+			if (levels % 2 == 1) {
+				reversed = !reversed;
+			}
+			if (level < next) {
+				// Less than a pixel per child is left, it goes to the first ones in serving order.
+				break;
+			}
+		}
+		for (int position = 0; position < tail - head; position++) {
+			int index = order[reversed ? tail - 1 - position : head + position];
+			if (!full[index]) {
+				distribution[index] = (int) level + (remaining-- > 0 ? 1 : 0);
+			}
+		}
+		for (int i = 0; i < withMax; i++) {
+			if (full[(int) byMax[i]]) {
+				distribution[(int) byMax[i]] = (int) (byMax[i] >> 32);
+			}
+		}
 	}
 
-	public static int checkDistributionComplete (int length, boolean[] removedIndex, int i, int capacityValue) {
-		if (capacityValue <= 0) {
-			// this node is distributed properly
-			length--;
-			removedIndex[i] = true;
+	/**
+	 * Distribution of the FAIR strategy: every child first gets its minimum, like in
+	 * {@link #balanceDistribution(int[], int[], int)}, then the remaining pixels are shared in equal
+	 * parts among the children that are not full, where a part is never more than what the emptiest
+	 * of them can still take. When less than a pixel per child is left, the first ones get a pixel
+	 * each. No child gets more than its max.
+	 *
+	 * @param minValues    the min width or height of each child
+	 * @param maxValues    the max width or height of each child
+	 * @param count        the number of children
+	 * @param total        the width or height to distribute
+	 * @param distribution receives the size given to each child
+	 */
+	public static void fairDistribution (int[] minValues, int[] maxValues, int count, int total, int[] distribution) {
+		Arrays.fill(distribution, 0, count, 0);
+		int remaining = total;
+		for (int i = 0; i < count; i++) {
+			distribution[i] = minValues[i];
+			remaining -= minValues[i];
+			if (remaining <= 0) {
+				return;
+			}
+		}
+		while (remaining > 0) {
+			// Every round either fills a child or uses up the remaining pixels.
+			int active = 0;
+			int part = Integer.MAX_VALUE;
+			for (int i = 0; i < count; i++) {
+				int capacity = maxValues[i] - distribution[i];
+				if (capacity > 0) {
+					active++;
+					part = Math.min(part, capacity);
+				}
+			}
+			if (active == 0) {
+				log.trace("Layout's constraints exceeds max values for components!");
+				return;
+			}
+			part = Math.min(part, remaining / active);
+			for (int i = 0; i < count && remaining > 0; i++) {
+				if (maxValues[i] > distribution[i]) {
+					int amount = part == 0 ? 1 : part;
+					distribution[i] += amount;
+					remaining -= amount;
+				}
+			}
 		}
-		return length;
 	}
 
-	public static void checkForDistributionCompletedSuccessfully (boolean[] removedIndex, String id) {
-		for (boolean index : removedIndex) {
-			if (!index) {
-				log.trace("LayoutContainer with id: " + id + " is not a tight fit.");
-				break; // not tight fit
+	/**
+	 * Distribution of the WEIGHT strategies: every child gets a share of the total in proportion to
+	 * its value. The shares are rounded on the running sums, so they always add up to the total. If
+	 * all values are 0, every child gets 0.
+	 *
+	 * @param values       the values to weigh the children with, for example their max widths
+	 * @param count        the number of children
+	 * @param total        the width or height to distribute
+	 * @param distribution receives the size given to each child
+	 */
+	public static void weightDistribution (int[] values, int count, int total, int[] distribution) {
+		long sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += values[i];
+		}
+		long cum = 0;
+		long given = 0;
+		for (int i = 0; i < count; i++) {
+			cum += values[i];
+			long upTo = sum == 0 ? 0 : cum * total / sum;
+			distribution[i] = (int) (upTo - given);
+			given = upTo;
+		}
+	}
+
+	/**
+	 * Removes every range whose min/max envelope is covered by another range in the given vector.
+	 * A covered range can never be feasible for a size that the covering range cannot handle, and
+	 * this stays true after it is combined with the ranges of the siblings, so dropping it keeps the
+	 * set of feasible sizes of the whole tree intact. Ranges with identical envelopes are merged into
+	 * the first one. The order of the remaining ranges is preserved.
+	 *
+	 * @param ranges the ranges to prune, modified in place
+	 * @return the number of removed ranges
+	 */
+	public static int pruneDominatedRanges (Vector<WidthHeightRange> ranges) {
+		int size = ranges.size();
+		if (size < 2) {
+			return 0;
+		}
+		int[] minWidths = new int[size];
+		int[] maxWidths = new int[size];
+		int[] minHeights = new int[size];
+		int[] maxHeights = new int[size];
+		for (int i = 0; i < size; i++) {
+			WidthHeightRange whr = ranges.get(i);
+			minWidths[i] = whr.getMinWidth();
+			maxWidths[i] = whr.getMaxWidth();
+			minHeights[i] = whr.getMinHeight();
+			maxHeights[i] = whr.getMaxHeight();
+		}
+		boolean[] dominated = findDominatedRanges(minWidths, maxWidths, minHeights, maxHeights, size);
+
+		int targetIndex = 0;
+		for (int sourceIndex = 0; sourceIndex < size; sourceIndex++) {
+			if (!dominated[sourceIndex]) {
+				ranges.set(targetIndex++, ranges.get(sourceIndex));
+			}
+		}
+		ranges.setSize(targetIndex);
+		return size - targetIndex;
+	}
+
+	/**
+	 * Marks the envelopes, given as parallel arrays, that are covered by another envelope. For
+	 * identical envelopes only the later ones are marked.
+	 *
+	 * @return an array where the covered envelopes are true
+	 */
+	public static boolean[] findDominatedRanges (int[] minWidths, int[] maxWidths, int[] minHeights, int[] maxHeights, int size) {
+		boolean[] dominated = new boolean[size];
+		// Sorting by min values ascending and max values descending puts every covering range in
+		// front of the ranges it covers, so each range only has to be checked against the kept ones.
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.<Integer>comparingInt(i -> minWidths[i])
+				.thenComparing(i -> maxWidths[i], Comparator.reverseOrder())
+				.thenComparingInt(i -> minHeights[i])
+				.thenComparing(i -> maxHeights[i], Comparator.reverseOrder()));
+
+		int[] kept = new int[size];
+		int keptCount = 0;
+		for (int index : order) {
+			for (int k = 0; k < keptCount; k++) {
+				int keptIndex = kept[k];
+				if (minWidths[keptIndex] <= minWidths[index]
+						&& maxWidths[keptIndex] >= maxWidths[index]
+						&& minHeights[keptIndex] <= minHeights[index]
+						&& maxHeights[keptIndex] >= maxHeights[index]) {
+					dominated[index] = true;
+					break;
+				}
+			}
+			if (!dominated[index]) {
+				kept[keptCount++] = index;
+			}
+		}
+		return dominated;
+	}
+
+	/**
+	 * Keeps only the limit ranges with the largest min/max envelopes in the given vector, used by
+	 * the heuristic mode of enumeration, see {@link com.prototype.smartlayout.model.EnumerationBudget}.
+	 * Unlike pruning this may drop feasible layouts. The order of the remaining ranges is preserved.
+	 *
+	 * @param ranges the ranges to trim, modified in place
+	 * @param limit  the number of ranges to keep
+	 * @return the number of removed ranges
+	 */
+	public static int trimRanges (Vector<WidthHeightRange> ranges, int limit) {
+		int size = ranges.size();
+		if (size <= limit) {
+			return 0;
+		}
+		int[] minWidths = new int[size];
+		int[] maxWidths = new int[size];
+		int[] minHeights = new int[size];
+		int[] maxHeights = new int[size];
+		for (int i = 0; i < size; i++) {
+			WidthHeightRange whr = ranges.get(i);
+			minWidths[i] = whr.getMinWidth();
+			maxWidths[i] = whr.getMaxWidth();
+			minHeights[i] = whr.getMinHeight();
+			maxHeights[i] = whr.getMaxHeight();
+		}
+		boolean[] trimmed = findTrimmedRanges(minWidths, maxWidths, minHeights, maxHeights, size, limit);
+
+		int targetIndex = 0;
+		for (int sourceIndex = 0; sourceIndex < size; sourceIndex++) {
+			if (!trimmed[sourceIndex]) {
+				ranges.set(targetIndex++, ranges.get(sourceIndex));
+			}
+		}
+		ranges.setSize(targetIndex);
+		return size - targetIndex;
+	}
+
+	/**
+	 * Finds all but the limit ranges with the largest envelope area, i.e. the ones that fit the
+	 * fewest sizes. Among ranges with the same area the earlier ones are kept.
+	 *
+	 * @return for every range, true if it should be dropped
+	 */
+	public static boolean[] findTrimmedRanges (int[] minWidths, int[] maxWidths, int[] minHeights, int[] maxHeights, int size, int limit) {
+		boolean[] trimmed = new boolean[size];
+		if (size <= limit) {
+			return trimmed;
+		}
+		double[] areas = new double[size];
+		for (int i = 0; i < size; i++) {
+			areas[i] = ((double) maxWidths[i] - minWidths[i] + 1) * ((double) maxHeights[i] - minHeights[i] + 1);
+		}
+		double[] sorted = Arrays.copyOf(areas, size);
+		Arrays.sort(sorted);
+		// The smallest area that is kept, ranges with exactly this area are kept while there is room.
+		double threshold = limit > 0 ? sorted[size - limit] : Double.POSITIVE_INFINITY;
+		int atThreshold = 0;
+		for (int i = size - limit; i < size; i++) {
+			if (sorted[i] == threshold) {
+				atThreshold++;
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			if (areas[i] < threshold) {
+				trimmed[i] = true;
+			} else if (areas[i] == threshold) {
+				trimmed[i] = atThreshold-- <= 0;
+			}
+		}
+		return trimmed;
+	}
+
+	/**
+	 * The work arrays of {@link #balanceDistribution(int[], int[], int, int, int[])}, which only grow.
+	 */
+	private static class BalanceBuffers {
+		private long[] byStart = new long[0];
+		private long[] byMax = new long[0];
+		private int[] order = new int[0];
+		private boolean[] full = new boolean[0];
+
+		private BalanceBuffers ensureCapacity (int n) {
+			if (byStart.length < n) {
+				byStart = new long[n];
+				byMax = new long[n];
+				order = new int[2 * n];
+				full = new boolean[n];
 			}
+			return this;
 		}
 	}
 }
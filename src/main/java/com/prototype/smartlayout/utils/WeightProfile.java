@@ -0,0 +1,110 @@
+package com.prototype.smartlayout.utils;
+
+import com.prototype.smartlayout.model.enums.AestheticMetricEnum;
+import java.util.Arrays;
+import java.util.Locale;
+import lombok.Getter;
+
+/**
+ * The weights of the aesthetic metrics in the score of a layout, see {@link AestheticScorer}. A
+ * metric with weight 0 is not computed at all, and neither is the data only it needs. Profiles are
+ * immutable, so one profile can be shared by the scorers of all threads.
+ */
+public final class WeightProfile {
+	/**
+	 * The weights SmartLayout has always used, without equilibrium and density.
+	 */
+	public static final WeightProfile DEFAULT = new WeightProfile(new double[] {1, 0, 1, 0.2, 1, 1, 1, 1, 0, 1, 1, 1, 1}, 1);
+	/**
+	 * Every metric with weight 1, for a scorer that has to compute all of them.
+	 */
+	public static final WeightProfile ALL = new WeightProfile(new double[] {1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1}, 1);
+
+	private final double[] weights;
+	// Of the mean of the weighted metrics, which is added to their sum
+	@Getter
+	private final double orderAndComplexityWeight;
+
+	private WeightProfile (double[] weights, double orderAndComplexityWeight) {
+		this.weights = weights;
+		this.orderAndComplexityWeight = orderAndComplexityWeight;
+	}
+
+	/**
+	 * Parses a profile like "balance=1,symmetry=0.5,orderAndComplexity=1". The names are the labels
+	 * of {@link AestheticMetricEnum} and orderAndComplexity, and what is not listed weighs 0.
+	 *
+	 * @throws IllegalArgumentException if a name or weight cannot be parsed
+	 */
+	public static WeightProfile parse (String profile) {
+		WeightProfile result = new WeightProfile(new double[AestheticMetricEnum.values().length], 0);
+		for (String entry : profile.split(",")) {
+			String[] nameAndWeight = entry.split("=");
+			if (nameAndWeight.length != 2) {
+				throw new IllegalArgumentException("Invalid weight " + entry + " in profile " + profile);
+			}
+			String name = nameAndWeight[0].trim();
+			double weight = Double.parseDouble(nameAndWeight[1].trim());
+			result = "orderAndComplexity".equalsIgnoreCase(name)
+					? result.withOrderAndComplexityWeight(weight)
+					: result.withWeight(AestheticMetricEnum.valueOf(name.toUpperCase(Locale.ROOT)), weight);
+		}
+		return result;
+	}
+
+	public double getWeight (AestheticMetricEnum metric) {
+		return weights[metric.ordinal()];
+	}
+
+	/**
+	 * @return true if the metric has to be computed
+	 */
+	public boolean isUsed (AestheticMetricEnum metric) {
+		return weights[metric.ordinal()] != 0;
+	}
+
+	/**
+	 * @return a copy of this profile with the given weight for the metric
+	 */
+	public WeightProfile withWeight (AestheticMetricEnum metric, double weight) {
+		double[] copy = weights.clone();
+		copy[metric.ordinal()] = weight;
+		return new WeightProfile(copy, orderAndComplexityWeight);
+	}
+
+	/**
+	 * @return a copy of this profile with the given weight for the order and complexity
+	 */
+	public WeightProfile withOrderAndComplexityWeight (double weight) {
+		return new WeightProfile(weights, weight);
+	}
+
+	@Override
+	public boolean equals (Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof WeightProfile)) {
+			return false;
+		}
+		WeightProfile other = (WeightProfile) o;
+		return Arrays.equals(weights, other.weights) && Double.compare(orderAndComplexityWeight, other.orderAndComplexityWeight) == 0;
+	}
+
+	@Override
+	public int hashCode () {
+		return 31 * Arrays.hashCode(weights) + Double.hashCode(orderAndComplexityWeight);
+	}
+
+	/**
+	 * @return the profile in the format of {@link #parse(String)}, with every weight
+	 */
+	@Override
+	public String toString () {
+		StringBuilder sb = new StringBuilder();
+		for (AestheticMetricEnum metric : AestheticMetricEnum.values()) {
+			sb.append(metric.label).append('=').append(getWeight(metric)).append(',');
+		}
+		return sb.append("orderAndComplexity=").append(orderAndComplexityWeight).toString();
+	}
+}